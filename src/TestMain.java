@@ -1,7 +1,19 @@
+import jsonparser.binary.JsonBinary;
+import jsonparser.bind.JsonBinder;
+import jsonparser.lazy.*;
 import jsonparser.lexer.*;
+import jsonparser.parallel.*;
 import jsonparser.parser.*;
+import jsonparser.query.*;
+import jsonparser.transform.JsonTransformer;
 import jsonparser.util.*;
+import jsonparser.writer.JsonWriter;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 
 public class TestMain {
@@ -17,6 +29,7 @@ public class TestMain {
                 "[true, false, null]",
                 "{\"nested\": {\"a\": 1, \"b\": [10, 20, 30]}}",
                 "{\"float\": 12.45, \"exp\": 1e10}",
+                "{\"id\": 9007199254740993, \"price\": 19.99}",
                 "{\"mix\": [1, \"text\", null, false, {\"x\":10}]}",
                 "[]",
                 "{}",
@@ -66,5 +79,630 @@ public class TestMain {
                 e.printStackTrace();
             }
         }
+
+        runChecks();
+    }
+
+    // ---------- CHECKS ----------
+    // One line per failed check, then a summary; any failure makes the run exit with status 1.
+    private static int passed = 0;
+    private static int failed = 0;
+
+    private static final String SAMPLE =
+            "{\"id\": 7, \"name\": \"Ann \\\"A\\\" \\u00e9\", \"tags\": [\"x\", \"y\"], \"score\": 1.50,\n"
+            + " \"ok\": true, \"none\": null, \"big\": 12345678901234567890, \"nested\": {\"a\": [1, 2, 3], \"b\": {}}}";
+
+    private static void runChecks() {
+        System.out.println("\n===============================");
+        System.out.println("CHECKS");
+        runSection("streaming parser", TestMain::checkStreaming);
+        runSection("chunked input", TestMain::checkChunkedInput);
+        runSection("UTF-8 lexer", TestMain::checkUtf8Lexer);
+        runSection("event handlers", TestMain::checkHandlers);
+        runSection("token tape", TestMain::checkTokenTape);
+        runSection("positions", TestMain::checkPositions);
+        runSection("numbers", TestMain::checkNumbers);
+        runSection("strings and keys", TestMain::checkStringsAndKeys);
+        runSection("objects", TestMain::checkObjects);
+        runSection("arrays", TestMain::checkArrays);
+        runSection("limits", TestMain::checkLimits);
+        runSection("path queries", TestMain::checkQueries);
+        runSection("projections", TestMain::checkProjections);
+        runSection("parallel parsing", TestMain::checkParallel);
+        runSection("scanning", TestMain::checkScanning);
+        runSection("writer", TestMain::checkWriter);
+        runSection("transforms", TestMain::checkTransforms);
+        runSection("validator", TestMain::checkValidator);
+        runSection("push parser", TestMain::checkPushParser);
+        runSection("lazy trees", TestMain::checkLazyTrees);
+        runSection("off-heap documents", TestMain::checkOffHeap);
+        runSection("data binding", TestMain::checkBinding);
+        runSection("binary encoding", TestMain::checkBinary);
+        System.out.println(passed + " passed, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private interface Section {
+        void run() throws Exception;
+    }
+
+    private static void runSection(String name, Section section) {
+        try {
+            section.run();
+        } catch (Exception | StackOverflowError e) {
+            failed++;
+            System.out.println("FAILED " + name + ": " + e);
+        }
+    }
+
+    private static void check(String name, boolean condition) {
+        if (condition) {
+            passed++;
+        } else {
+            failed++;
+            System.out.println("FAILED " + name);
+        }
+    }
+
+    private static void checkEquals(String name, Object expected, Object actual) {
+        check(name + ": expected <" + expected + "> but got <" + actual + ">", Objects.equals(expected, actual));
+    }
+
+    // The action must throw the given type; its message must contain 'message' (if not null).
+    private static void checkThrows(String name, Class<? extends Throwable> type, String message, Section action) {
+        try {
+            action.run();
+            check(name + ": nothing thrown", false);
+        } catch (Throwable e) {
+            boolean ok = type.isInstance(e) && (message == null || String.valueOf(e.getMessage()).contains(message));
+            check(name + ": got " + e, ok);
+        }
+    }
+
+    private static JsonValue parse(String json) {
+        return new Parser(new Lexer(json), json).parse();
+    }
+
+    private static String json(JsonValue value) {
+        return JsonWriter.toJson(value);
+    }
+
+    private static String errorOf(Section action) {
+        try {
+            action.run();
+            return "OK";
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static void checkStreaming() {
+        String expected = json(new Parser(new Lexer(SAMPLE).tokenize()).parse());
+        checkEquals("token list and streamed lexer agree", expected, json(new Parser(new Lexer(SAMPLE)).parse()));
+        TokenStream stream = new TokenStream(new Lexer("[1]"), 2);
+        checkEquals("lookahead", TokenType.NUMBER, stream.peek(1).getType());
+        // a lexer error later in the input wins over an earlier grammar error, as with a token list
+        for (String input : new String[] {"}e", "[1,]x", "{\"a\" 1, \"b\": tru}", "[1 2] \"\\q\"", "[1,]"}) {
+            checkEquals("streamed error for " + input, errorOf(() -> new Parser(new Lexer(input).tokenize(), input).parse()),
+                    errorOf(() -> parse(input)));
+        }
+
+        List<Token> unterminated = new ArrayList<>(new Lexer("[1").tokenize());
+        unterminated.remove(unterminated.size() - 1);
+        checkThrows("token list without EOF", ParserException.class, "but got EOF",
+                () -> new Parser(unterminated).parse());
+        TokenStream listed = TokenStream.of(new Lexer("1").tokenize());
+        listed.next();
+        listed.next();
+        checkEquals("EOF repeats past the end of a list", TokenType.EOF, listed.peek(1).getType());
+    }
+
+    private static void checkChunkedInput() {
+        String expected = json(parse(SAMPLE));
+        checkEquals("Reader input", expected, json(new Parser(new Lexer(new StringReader(SAMPLE))).parse()));
+        checkEquals("tiny buffer", expected,
+                json(new Parser(new Lexer(new CharReader(new StringReader(SAMPLE), 3))).parse()));
+        byte[] utf8 = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        checkEquals("InputStream input", expected, json(new Parser(new Lexer(new ByteArrayInputStream(utf8))).parse()));
+        checkEquals("error position across refills", errorOf(() -> parse("[1,\n  2,\n  x]")),
+                errorOf(() -> new Parser(new Lexer(new CharReader(new StringReader("[1,\n  2,\n  x]"), 2))).parse()));
+    }
+
+    private static void checkUtf8Lexer() throws IOException {
+        String expected = json(parse(SAMPLE));
+        byte[] utf8 = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        checkEquals("byte[] input", expected, json(new Parser(new Utf8Lexer(utf8)).parse()));
+        checkEquals("direct buffer", expected,
+                json(new Parser(new Utf8Lexer(ByteBuffer.allocateDirect(utf8.length).put(utf8).flip())).parse()));
+        Path file = Files.createTempFile("testmain", ".json");
+        try (FileChannel channel = FileChannel.open(Files.write(file, utf8), StandardOpenOption.READ)) {
+            checkEquals("mapped file", expected, json(new Parser(Utf8Lexer.map(channel)).parse()));
+        } finally {
+            Files.delete(file);
+        }
+        String bad = "[\"a\nb\", 1, x]";
+        checkEquals("same errors as Lexer", errorOf(() -> parse(bad)),
+                errorOf(() -> new Parser(new Utf8Lexer(bad.getBytes(StandardCharsets.UTF_8))).parse()));
+        for (byte[] malformed : new byte[][]{{'"', (byte) 0xC0, (byte) 0x80, '"'}, {'"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"'},
+                {'"', (byte) 0xF5, (byte) 0x80, (byte) 0x80, (byte) 0x80, '"'}}) {
+            checkThrows("malformed UTF-8 " + Arrays.toString(malformed), LexerException.class, null,
+                    () -> new Parser(new Utf8Lexer(malformed)).parse());
+        }
+    }
+
+    private static void checkHandlers() {
+        TreeBuilder builder = new TreeBuilder();
+        new Parser(new Lexer(SAMPLE)).parse(builder);
+        checkEquals("TreeBuilder", json(parse(SAMPLE)), json(builder.getResult()));
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        new Parser(new Lexer(SAMPLE)).parse(writer);
+        writer.flush();
+        checkEquals("events into a writer", json(parse(SAMPLE)), out.toString());
+    }
+
+    private static void checkTokenTape() {
+        TokenTape tape = TokenTape.of(SAMPLE);
+        checkEquals("tape size", new Lexer(SAMPLE).tokenize().size(), tape.size());
+        checkEquals("parse from a tape", json(parse(SAMPLE)), json(new Parser(tape).parse()));
+        checkEquals("tape errors", errorOf(() -> parse("[1 2]")), errorOf(() -> new Parser(TokenTape.of("[1 2]")).parse()));
+        StringBuilder many = new StringBuilder("[0");
+        for (int i = 1; i < 10_000; i++) {
+            many.append(',').append(i);
+        }
+        String manyJson = many.append(']').toString();
+        checkEquals("tape grows", new Lexer(manyJson).tokenize().size(), TokenTape.of(manyJson).size());
+    }
+
+    private static void checkPositions() {
+        checkThrows("lexer error line", LexerException.class, "at line 2, column", () -> parse("{\n  \"a\": tru\n}"));
+        checkThrows("parser error position", ParserException.class, "Line 3, Column 3", () -> parse("[1,\n 2\n 3]"));
+    }
+
+    private static void checkNumbers() {
+        checkEquals("spelling kept", "1.50", JsonNumber.parse("1.50").toString());
+        check("long", JsonNumber.parse("-42").isLong() && JsonNumber.parse("-42").asLong() == -42);
+        checkEquals("beyond long", new java.math.BigDecimal("12345678901234567890"),
+                JsonNumber.parse("12345678901234567890").asBigDecimal());
+        checkEquals("double", 0.1, JsonNumber.parse("0.1").doubleValue());
+        check("1.0 equals 1", JsonNumber.parse("1.0").equals(JsonNumber.of(1)));
+        check("equal numbers hash alike", JsonNumber.parse("1.0").hashCode() == JsonNumber.of(1).hashCode());
+        checkEquals("primitive equality", new JsonPrimitive(JsonNumber.parse("2.50")), new JsonPrimitive(JsonNumber.parse("2.5")));
+        check("1e18 hashes like the long", JsonNumber.parse("1000000000000000000").hashCode() == JsonNumber.parse("1e18").hashCode());
+        check("long max hashes like its decimal", JsonNumber.parse("9223372036854775807").hashCode()
+                == JsonNumber.parse("9223372036854775807.0").hashCode());
+        check("primitive hash agrees", new JsonPrimitive(JsonNumber.parse("1e18")).hashCode()
+                == new JsonPrimitive(1_000_000_000_000_000_000L).hashCode());
+        checkEquals("saturated exponent", new java.math.BigDecimal("1e1234567890"), JsonNumber.parse("1e1234567890").asBigDecimal());
+        check("saturated exponents differ", !JsonNumber.parse("1e1234567890").equals(JsonNumber.parse("1e1234567891")));
+        checkThrows("exponent beyond BigDecimal", ArithmeticException.class, "out of range",
+                () -> JsonNumber.parse("1e99999999999").asBigDecimal());
+        check("out-of-range equals itself", JsonNumber.parse("1e99999999999").equals(JsonNumber.parse("1e99999999999")));
+        checkEquals("stable serialVersionUID", 1L, ObjectStreamClass.lookup(JsonNumber.class).getSerialVersionUID());
+        checkThrows("leading zero", LexerException.class, "Leading zeros", () -> parse("01"));
+    }
+
+    private static void checkStringsAndKeys() {
+        JsonObject object = (JsonObject) parse("{\"s\": \"a\\nb\\u0041\\ud83d\\ude00\\/\"}");
+        checkEquals("escapes decoded", "a\nbA\ud83d\ude00/", ((JsonPrimitive) object.getMap().get("s")).get());
+        checkThrows("bad escape", LexerException.class, "Invalid escape", () -> parse("\"\\x\""));
+
+        String json = "[{\"key\": 1}, {\"key\": 2}]";
+        Parser parser = new Parser(new Lexer(json), json);
+        parser.setKeyTable(new SymbolTable());
+        JsonArray array = (JsonArray) parser.parse();
+        String first = ((JsonObject) array.getValues().get(0)).getMap().keySet().iterator().next();
+        String second = ((JsonObject) array.getValues().get(1)).getMap().keySet().iterator().next();
+        check("keys shared through the table", first == second);
+    }
+
+    private static void checkObjects() {
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < 20; i++) {
+            object.put("k" + i, new JsonPrimitive(JsonNumber.of(i)));
+        }
+        object.put("k3", new JsonPrimitive("three"));
+        checkEquals("replaced in place", "three", ((JsonPrimitive) object.get("k3")).get());
+        checkEquals("size", 20, object.size());
+        object.remove("k0");
+        object.remove("k10");
+        check("removed", !object.containsKey("k0") && !object.containsKey("k10") && object.size() == 18);
+        check("others still found", object.get("k19") != null && object.get("k1") != null);
+        checkEquals("order kept", "k1", object.getMap().keySet().iterator().next());
+        checkEquals("small object", "{\"b\":1,\"a\":2}", json(parse("{\"b\": 1, \"a\": 2}")));
+
+        JsonObject wide = new JsonObject();
+        for (int i = 0; i < 20_000; i++) {
+            wide.put("k" + i, new JsonPrimitive(JsonNumber.of(i)));
+        }
+        for (Iterator<String> keys = wide.getMap().keySet().iterator(); keys.hasNext(); ) {
+            if (Integer.parseInt(keys.next().substring(1)) % 2 == 0) keys.remove();
+        }
+        boolean found = wide.size() == 10_000;
+        for (int i = 0; i < 20_000; i++) {
+            found &= wide.containsKey("k" + i) == (i % 2 == 1);
+        }
+        check("removal through the iterator", found);
+        wide.put("k0", new JsonPrimitive(true));
+        check("added after removals", wide.size() == 10_001 && wide.get("k0") != null && wide.get("k19999") != null);
+    }
+
+    private static void checkArrays() {
+        JsonArray longs = (JsonArray) parse("[1, 2, 3]");
+        check("long getters", longs.getLong(2) == 3 && Arrays.equals(longs.toLongArray(), new long[]{1, 2, 3}));
+        checkEquals("wrapped element", JsonNumber.of(2), ((JsonPrimitive) longs.get(1)).get());
+        JsonArray doubles = (JsonArray) parse("[1.5, 2]");
+        check("double getters", doubles.getDouble(0) == 1.5 && doubles.getLong(1) == 2);
+        check("long storage", longs.hasLongStorage());
+        check("double storage", doubles.hasDoubleStorage() && doubles.isInteger(1));
+        JsonArray powers = (JsonArray) parse("[1e23, 1E2, 2.82879384806159E17]");
+        checkEquals("exponents keep their spelling", "[1e23,1E2,2.82879384806159E17]", json(powers));
+        checkEquals("element reads back equal", JsonNumber.parse("1e23"), ((JsonPrimitive) powers.get(0)).get());
+        check("shortest form is a shortest double", JsonNumber.of(1e23).isShortestDouble());
+        JsonArray shortest = (JsonArray) parse("[1.0E23, 100.0, 2.82879384806159E17, -0.0]");
+        check("shortest doubles stored as doubles", shortest.hasDoubleStorage());
+        checkEquals("shortest doubles read back as written", "[1.0E23,100.0,2.82879384806159E17,-0.0]", json(shortest));
+        JsonArray money = (JsonArray) parse("[10.00, 5.50]");
+        checkEquals("trailing zeros kept", "[10.00,5.50]", json(money));
+        checkEquals("scale kept", new java.math.BigDecimal("10.00"), ((JsonPrimitive) money.get(0)).asBigDecimal());
+        checkEquals("same text as in an object", json(((JsonObject) parse("{\"a\": 5.50}")).get("a")), json(money.get(1)));
+        JsonArray booleans = (JsonArray) parse("[true, false]");
+        check("boolean getters", booleans.getBoolean(0) && !booleans.getBoolean(1));
+        check("boolean storage", booleans.hasBooleanStorage());
+        check("mixed array", !((JsonArray) parse("[1, \"a\", null]")).hasLongStorage());
+        longs.add(new JsonPrimitive("x"));
+        checkEquals("widened on add", "[1,2,3,\"x\"]", json(longs));
+        checkEquals("ofLongs", "[4,5]", json(JsonArray.ofLongs(new long[]{4, 5, 6}, 2)));
+    }
+
+    private static void checkLimits() {
+        int n = 100_000;
+        String deep = "[".repeat(n) + "]".repeat(n);
+        check("deep nesting", parse(deep) instanceof JsonArray);
+        checkEquals("deep round trip", deep, json(parse(deep)));
+        Parser depth = new Parser(new Lexer("[[[1]]]"));
+        depth.setMaxDepth(2);
+        checkThrows("max depth", ParserException.class, "Maximum nesting depth of 2", depth::parse);
+        Parser size = new Parser(new Lexer("[1, 2, 3]"));
+        size.setMaxDocumentSize(5);
+        checkThrows("max size", ParserException.class, "exceeds maximum size of 5", size::parse);
+        Parser stream = new Parser(new Lexer(new StringReader("[\"" + "x".repeat(100_000) + "\"]")));
+        stream.setMaxDocumentSize(100);
+        checkThrows("max size inside a token", ParserException.class, "at 1:102", stream::parse);
+    }
+
+    private static void checkQueries() {
+        Map<JsonPath, List<JsonValue>> found = PathQuery.of("$.id", "/tags/*", "$.nested.a[1]").select(SAMPLE);
+        List<String> values = new ArrayList<>();
+        for (List<JsonValue> matches : found.values()) {
+            for (JsonValue value : matches) {
+                values.add(json(value));
+            }
+        }
+        checkEquals("matches", List.of("7", "\"x\"", "\"y\"", "2"), values);
+        checkEquals("single path", "[{}]", JsonPath.compile("/nested/b").select(SAMPLE).toString());
+        checkEquals("no match", List.of(), JsonPath.compile("$.missing").select(new StringReader(SAMPLE)));
+    }
+
+    private static void checkProjections() {
+        JsonValue pruned = new Parser(new Lexer(SAMPLE)).parse(Projection.of("id", "nested.a"));
+        checkEquals("projection", "{\"id\":7,\"nested\":{\"a\":[1,2,3]}}", json(pruned));
+        Parser strict = new Parser(new Lexer("{\"id\": 1, \"x\": [1 2]}"));
+        checkThrows("skipped values still validated", ParserException.class, null, () -> strict.parse(Projection.of("id")));
+    }
+
+    private static void checkParallel() {
+        StringBuilder big = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            big.append(i == 0 ? "" : ",").append(SAMPLE);
+        }
+        String document = big.append("]").toString();
+        ParallelParser parallel = new ParallelParser();
+        parallel.setParallelThreshold(1);
+        checkEquals("parallel document", json(parse(document)), json(parallel.parse(document)));
+        for (String malformed : new String[] {"[1}", "[1, 2}", "[{\"a\":1}, [2]}", "[1,", "[1] x", "[1]]", "{\"a\": [1]]"}) {
+            checkEquals("parallel error for " + malformed, errorOf(() -> parse(malformed)),
+                    errorOf(() -> parallel.parse(malformed)));
+        }
+
+        String lines = "{\"a\": 1}\n\n[2]\n\"three\"\n";
+        JsonLinesReader reader = new JsonLinesReader(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)));
+        reader.setChunkSize(4);
+        List<String> records = new ArrayList<>();
+        for (JsonValue value : reader.readAll()) {
+            records.add(json(value));
+        }
+        checkEquals("JSON lines", List.of("{\"a\":1}", "[2]", "\"three\""), records);
+        JsonLinesReader broken = new JsonLinesReader(new ByteArrayInputStream("1\n2\n[3\n".getBytes(StandardCharsets.UTF_8)));
+        checkThrows("malformed record keeps its line", ParserException.class, "at 3:3", broken::readAll);
+
+        StructuralIndex index = StructuralIndex.build("{\"a\": [1, \"]\"]}");
+        checkEquals("structural chars", "{:[,]}", structuralChars(index));
+        checkEquals("index grows", 2 + 999, StructuralIndex.build("[" + "1,".repeat(999) + "1]").size());
+    }
+
+    private static String structuralChars(StructuralIndex index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < index.size(); i++) {
+            char c = index.charAt(i);
+            if (c != '"') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void checkScanning() {
+        String runs = "[" + " ".repeat(5000) + "\"" + "plain text ".repeat(2000) + "\",\n" + "\t \r\n".repeat(1000)
+                + "\"a\\tb" + "c".repeat(3000) + "\", 1]";
+        String expected = json(parse(runs));
+        checkEquals("long runs through a small buffer", expected,
+                json(new Parser(new Lexer(new CharReader(new StringReader(runs), 64))).parse()));
+        checkEquals("long runs from bytes", expected, json(new Parser(new Utf8Lexer(runs.getBytes(StandardCharsets.UTF_8))).parse()));
+        checkEquals("control char after a run", errorOf(() -> parse("\"" + "x".repeat(100) + "\u0001\"")),
+                errorOf(() -> new Parser(new Utf8Lexer(("\"" + "x".repeat(100) + "\u0001\"").getBytes(StandardCharsets.UTF_8))).parse()));
+    }
+
+    private static void checkWriter() {
+        checkEquals("compact", "{\"a\":[1,2.5,\"x\\n\"],\"b\":null}", json(parse("{\"a\": [1, 2.5, \"x\\n\"], \"b\": null}")));
+        checkEquals("pretty", "{\n  \"a\": [\n    1\n  ]\n}", JsonWriter.toJson(parse("{\"a\": [1]}"), true));
+        checkEquals("round trip", json(parse(SAMPLE)), json(parse(json(parse(SAMPLE)))));
+        checkEquals("control chars escaped", "\"\\u0001\"", json(new JsonPrimitive("\u0001")));
+        checkThrows("non-finite double", IllegalArgumentException.class, null,
+                () -> new JsonWriter(new StringWriter()).numberValue(Double.NaN));
+
+        // a rejected number leaves the writer as it was
+        StringWriter rejected = new StringWriter();
+        JsonWriter guarded = new JsonWriter(rejected);
+        guarded.startObject();
+        guarded.key("a");
+        checkThrows("non-finite boxed double", IllegalArgumentException.class, null, () -> guarded.numberValue((Number) Double.NaN));
+        checkThrows("non-finite boxed float", IllegalArgumentException.class, null,
+                () -> guarded.numberValue((Number) Float.POSITIVE_INFINITY));
+        guarded.numberValue((Number) 1);
+        guarded.endObject();
+        guarded.flush();
+        checkEquals("writer unchanged after a rejected number", "{\"a\":1}", rejected.toString());
+
+        // shortest digits that read back as the same double, on any JDK
+        StringWriter doubles = new StringWriter();
+        JsonWriter out = new JsonWriter(doubles);
+        out.startArray();
+        for (double d : new double[] {1e23, 2.82879384806159E17, 0.1, 100, 1e7, 0.001, -0.0, Double.MIN_VALUE, Double.MAX_VALUE}) {
+            out.numberValue(d);
+        }
+        out.endArray();
+        out.flush();
+        checkEquals("shortest doubles",
+                "[1.0E23,2.82879384806159E17,0.1,100.0,1.0E7,0.001,-0.0,4.9E-324,1.7976931348623157E308]", doubles.toString());
+        checkEquals("boxed double", "1.0E23", json(new JsonPrimitive(1e23)));
+        checkEquals("JsonNumber.of(double)", "1.0E23", JsonNumber.of(1e23).toString());
+        check("boxed double equals its JsonNumber", new JsonPrimitive(1e23).equals(new JsonPrimitive(JsonNumber.of(1e23))));
+        java.util.SplittableRandom random = new java.util.SplittableRandom(18);
+        int roundTripped = 0;
+        for (int i = 0; i < 100_000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isFinite(d)) {
+                roundTripped++;
+                continue;
+            }
+            String text = JsonNumber.of(d).toString();
+            if (Double.parseDouble(text) == d && text.length() <= Double.toString(d).length()) roundTripped++;
+        }
+        checkEquals("random doubles round trip", 100_000, roundTripped);
+    }
+
+    private static void checkTransforms() {
+        JsonTransformer transformer = new JsonTransformer().dropFields("tags").redactKeys("name").normalizeNumbers();
+        checkEquals("transform",
+                "{\"id\":7,\"name\":\"***\",\"score\":1.5,\"ok\":true,\"none\":null,\"big\":12345678901234567890,\"nested\":{\"a\":[1,2,3],\"b\":{}}}",
+                transformer.transform(SAMPLE));
+        StringWriter out = new StringWriter();
+        new JsonTransformer().normalizeNumbers().transform(new StringReader("[1.0, 1e2, 2.50]"), out);
+        checkEquals("streamed transform", "[1,100,2.5]", out.toString());
+        Lexer shared = new Lexer(new StringReader("[" + "1,\n".repeat(50_000) + "1]"));
+        new LexerCursor(shared);
+        List<Token> tokens = shared.tokenize();
+        checkEquals("a cursor keeps line history", 1, tokens.get(1).getLine());
+        checkEquals("huge exponents", "[1E+1234567890,1e99999999999]",
+                new JsonTransformer().normalizeNumbers().transform("[1e1234567890, 1e99999999999]"));
+    }
+
+    private static void checkValidator() {
+        String[] inputs = {SAMPLE, "[1, 2", "{\"a\" 1}", "\"\\q\"", "[1] x", "  null  "};
+        for (String input : inputs) {
+            checkEquals("validator agrees with the parser on " + input, errorOf(() -> parse(input)),
+                    errorOf(() -> JsonValidator.validate(input)));
+            checkEquals("isValid " + input, errorOf(() -> parse(input)).equals("OK"), JsonValidator.isValid(input));
+        }
+        check("stream validation", errorOf(() -> JsonValidator.validate(new StringReader(SAMPLE))).equals("OK"));
+    }
+
+    private static void checkPushParser() {
+        byte[] utf8 = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        String expected = json(parse(SAMPLE));
+        boolean allSplits = true;
+        for (int split = 0; split <= utf8.length; split++) {
+            PushParser push = new PushParser();
+            push.feed(utf8, 0, split);
+            push.feed(utf8, split, utf8.length - split);
+            push.endOfInput();
+            allSplits &= push.isDone() && json(push.getResult()).equals(expected);
+        }
+        check("every split point", allSplits);
+        PushParser bytewise = new PushParser();
+        for (byte b : utf8) {
+            bytewise.feed(new byte[]{b}, 0, 1);
+        }
+        bytewise.endOfInput();
+        checkEquals("byte by byte", expected, json(bytewise.getResult()));
+
+        String bad = "{\"a\": [1,\n 2 3]}";
+        PushParser failing = new PushParser();
+        String pushed = errorOf(() -> {
+            failing.feed(bad.getBytes(StandardCharsets.UTF_8), 0, bad.length());
+            failing.endOfInput();
+        });
+        checkEquals("same errors as Parser", errorOf(() -> new Parser(new Utf8Lexer(bad.getBytes(StandardCharsets.UTF_8))).parse()), pushed);
+        PushParser incomplete = new PushParser();
+        incomplete.feed("[1".getBytes(StandardCharsets.UTF_8), 0, 2);
+        check("incomplete until the end", !incomplete.isDone());
+        checkThrows("truncated document", ParserException.class, null, incomplete::endOfInput);
+
+        // the size limit holds while a token is still incomplete
+        PushParser limited = new PushParser();
+        limited.setMaxDocumentSize(1000);
+        limited.feed("[\"".getBytes(StandardCharsets.UTF_8), 0, 2);
+        byte[] filler = "x".repeat(4096).getBytes(StandardCharsets.UTF_8);
+        checkThrows("unterminated string over the limit", ParserException.class, "exceeds maximum size of 1000",
+                () -> limited.feed(filler, 0, filler.length));
+        String sized = "[1, 22, 3]";
+        for (int max = 0; max <= sized.length(); max++) {
+            Parser parser = new Parser(new Lexer(sized));
+            parser.setMaxDocumentSize(max);
+            PushParser push = new PushParser();
+            push.setMaxDocumentSize(max);
+            checkEquals("size limit " + max + " as in Parser", errorOf(parser::parse), errorOf(() -> {
+                for (int i = 0; i < sized.length(); i++) push.feed(sized.getBytes(StandardCharsets.UTF_8), i, 1);
+                push.endOfInput();
+            }));
+        }
+    }
+
+    private static void checkLazyTrees() {
+        JsonObject root = (JsonObject) JsonIndex.parse(SAMPLE);
+        check("root not materialized", root instanceof LazyJsonObject && !((LazyJsonObject) root).isMaterialized());
+        JsonValue nested = root.get("nested");
+        check("children not materialized", nested instanceof LazyJsonObject && !((LazyJsonObject) nested).isMaterialized());
+        checkEquals("lazy equals eager", json(parse(SAMPLE)), json(JsonIndex.parse(SAMPLE)));
+        LazyJsonArray tags = (LazyJsonArray) root.get("tags");
+        checkEquals("size without materializing", 2, tags.size());
+        check("size does not materialize", !tags.isMaterialized());
+        LazyJsonArray numbers = (LazyJsonArray) ((JsonObject) nested).get("a");
+        check("typed storage after materializing", numbers.hasLongStorage() && numbers.isMaterialized());
+        checkThrows("lazy errors", ParserException.class, null, () -> JsonIndex.parse("[1, 2"));
+    }
+
+    private static void checkOffHeap() {
+        try (OffHeapDocument doc = OffHeapDocument.parse(SAMPLE)) {
+            int root = doc.root();
+            checkEquals("type", OffHeapDocument.OBJECT, doc.type(root));
+            checkEquals("long", 7L, doc.getLong(doc.member(root, "id")));
+            checkEquals("string", "Ann \"A\" \u00e9", doc.getString(doc.member(root, "name")));
+            int tags = doc.member(root, "tags");
+            checkEquals("first member key", "id", doc.key(doc.first(root)));
+            checkEquals("element", "y", doc.getString(doc.element(tags, 1)));
+            check("missing member", doc.member(root, "nope") < 0);
+            checkEquals("copy to the heap", json(parse(SAMPLE)), json(doc.toJsonValue(root)));
+            checkEquals("double from kept text", 1.5, doc.getDouble(doc.member(root, "score")));
+            int n = 50_000;
+            String deep = "[".repeat(n) + "]".repeat(n);
+            try (OffHeapDocument deepDoc = OffHeapDocument.parse(deep)) {
+                checkEquals("deep copy", deep, json(deepDoc.toJsonValue(deepDoc.root())));
+            }
+        }
+    }
+
+    record Point(int x, long y, double z, boolean flag, String label, List<String> tags, Map<String, Integer> counts) {
+    }
+
+    static class Box {
+        Point point;
+        int[] sizes;
+        JsonValue extra;
+    }
+
+    static class Node {
+        Node next;
+    }
+
+    private static void checkBinding() {
+        Point point = new Point(1, 2L, 0.5, true, "p", List.of("a", "b"), Map.of("c", 3));
+        String text = JsonBinder.write(point);
+        checkEquals("record round trip", point, JsonBinder.read(text, Point.class));
+        Box box = JsonBinder.read("{\"point\": " + text + ", \"sizes\": [1, 2], \"extra\": {\"k\": [true]}, \"unknown\": 1}", Box.class);
+        check("class fields", box.point.equals(point) && Arrays.equals(box.sizes, new int[]{1, 2}));
+        checkEquals("JsonValue property", "{\"k\":[true]}", json(box.extra));
+        checkEquals("stream input", point, JsonBinder.read(new StringReader(text), Point.class));
+        checkThrows("wrong type", ParserException.class, null, () -> JsonBinder.read("{\"x\": \"one\"}", Point.class));
+        checkThrows("out of range", ParserException.class, null, () -> JsonBinder.read("{\"x\": 3000000000}", Point.class));
+        checkThrows("malformed", ParserException.class, null, () -> JsonBinder.read("{\"x\": 1", Point.class));
+        checkThrows("unbindable", IllegalArgumentException.class, null, () -> JsonBinder.read("{}", Thread.class));
+        checkThrows("double overflow", ParserException.class, "Expected double but got 1e400 at 1:12",
+                () -> JsonBinder.read("{\"z\": 1e400, \"x\": 1}", Point.class));
+        checkEquals("largest float", Float.MAX_VALUE, JsonBinder.read(JsonBinder.write(Float.MAX_VALUE), Float.class));
+
+        List<Object> list = new ArrayList<>();
+        list.add(list);
+        checkThrows("list cycle", IllegalArgumentException.class, "Maximum nesting depth", () -> JsonBinder.write(list));
+        Map<String, Object> map = new HashMap<>();
+        map.put("self", map);
+        checkThrows("map cycle", IllegalArgumentException.class, "Maximum nesting depth", () -> JsonBinder.write(map));
+        Node node = new Node();
+        node.next = node;
+        checkThrows("object cycle", IllegalArgumentException.class, "Maximum nesting depth", () -> JsonBinder.write(node));
+        Node chain = new Node();
+        for (int i = 0; i < 500; i++) {
+            Node head = new Node();
+            head.next = chain;
+            chain = head;
+        }
+        check("deep but finite graph", JsonBinder.write(chain).startsWith("{\"next\":{\"next\":"));
+    }
+
+    private static void checkBinary() {
+        JsonValue value = parse(SAMPLE);
+        byte[] bytes = JsonBinary.encode(value);
+        checkEquals("round trip", json(value), json(JsonBinary.decode(bytes)));
+        JsonArray java = new JsonArray();
+        java.add(new JsonPrimitive(1));
+        java.add(new JsonPrimitive(2.5f));
+        java.add(new JsonPrimitive(new java.math.BigDecimal("1.10")));
+        java.add(new JsonPrimitive(null));
+        JsonArray back = (JsonArray) JsonBinary.decode(JsonBinary.encode(java));
+        check("Java number types kept", ((JsonPrimitive) back.get(0)).get() instanceof Integer
+                && ((JsonPrimitive) back.get(1)).get() instanceof Float
+                && ((JsonPrimitive) back.get(2)).get().equals(new java.math.BigDecimal("1.10")));
+        check("typed arrays kept", ((JsonArray) JsonBinary.decode(JsonBinary.encode(parse("[1.5, 2]")))).hasDoubleStorage());
+        String money = "{\"prices\":[10.00,5.50,1e5],\"rates\":[0.25,1.0E-4]}";
+        checkEquals("array numbers keep their spelling", money, json(JsonBinary.decode(JsonBinary.encode(parse(money)))));
+        checkThrows("truncated", IllegalArgumentException.class, null,
+                () -> JsonBinary.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+        checkThrows("not binary JSON", IllegalArgumentException.class, "Not binary JSON",
+                () -> JsonBinary.decode("{}".getBytes(StandardCharsets.UTF_8)));
+        int n = 100_000;
+        String deep = "[".repeat(n) + "]".repeat(n);
+        checkEquals("deep round trip", deep, json(JsonBinary.decode(JsonBinary.encode(parse(deep)))));
+        byte[] nested = new byte[3 + 400_000];
+        nested[0] = 'J';
+        nested[1] = 'B';
+        nested[2] = 1;
+        for (int i = 3; i < nested.length; i += 2) {
+            nested[i] = 8;
+            nested[i + 1] = 1;
+        }
+        checkThrows("deeply nested garbage", IllegalArgumentException.class, null, () -> JsonBinary.decode(nested));
+
+        checkEquals("number text", "1.5e+3", json(JsonBinary.decode(binaryNumber(6, "1.5e+3"))));
+        for (String text : new String[] {"1.2.3", "abc", "", "-", "01", "1.", "1e", ".5", "1e5x"}) {
+            checkThrows("malformed number text " + text, IllegalArgumentException.class, "Malformed number",
+                    () -> JsonBinary.decode(binaryNumber(6, text)));
+        }
+        checkThrows("fraction in a BigInteger", IllegalArgumentException.class, "Malformed number",
+                () -> JsonBinary.decode(binaryNumber(19, "1.5")));
+        checkThrows("BigDecimal exponent out of range", IllegalArgumentException.class, "Malformed number",
+                () -> JsonBinary.decode(binaryNumber(18, "1e99999999999")));
+    }
+
+    // A hand-made encoding of one number: header, tag, length, ASCII text.
+    private static byte[] binaryNumber(int tag, String text) {
+        byte[] bytes = new byte[5 + text.length()];
+        bytes[0] = 'J';
+        bytes[1] = 'B';
+        bytes[2] = 1;
+        bytes[3] = (byte) tag;
+        bytes[4] = (byte) text.length();
+        System.arraycopy(text.getBytes(StandardCharsets.US_ASCII), 0, bytes, 5, text.length());
+        return bytes;
     }
 }
@@ -0,0 +1,678 @@
+package jsonparser.binary;
+
+import jsonparser.parser.*;
+import jsonparser.util.JsonNumber;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// A compact binary form of JsonValue trees, for caches and stored documents that would
+// otherwise be lexed and parsed again on every load:
+//
+//   byte[] bytes = JsonBinary.encode(value);
+//   JsonValue copy = JsonBinary.decode(bytes);
+//
+// The round trip is lossless: numbers keep their spelling (1.50 stays 1.50), array elements
+// included, since a JsonArray only holds numbers already in their shortest double form in a
+// double[] (see JsonNumber.isShortestDouble()). Member order is kept, and a JsonPrimitive
+// holding an Integer, Long, Double, BigDecimal... comes back holding the same type. Java
+// nulls come back as JsonPrimitive(null).
+//
+// Layout: the magic bytes 'J' 'B', a version byte, then one value. A value is a tag byte and
+// its payload; counts and integers are unsigned / zigzag varints (7 bits per byte):
+//
+//   NULL, FALSE, TRUE            -
+//   ASCII_STRING, UTF8_STRING    byte length, bytes (lone surrogates as 3-byte sequences)
+//   INTEGER                      zigzag varint (a JsonNumber that is a plain integer)
+//   NUMBER_TEXT                  length, ASCII text (any other JsonNumber)
+//   OBJECT                       count, then per member a key and a value
+//   ARRAY                        count, values
+//   LONG_ARRAY                   count, zigzag varints        (arrays stored as long[],
+//   DOUBLE_ARRAY                 count, integer bits, doubles  double[] or bits, see
+//   BOOLEAN_ARRAY                count, bits                   JsonArray.hasLongStorage())
+//   INT, LONG, SHORT, BYTE       zigzag varint  (primitives built from Java numbers)
+//   DOUBLE, FLOAT                8 / 4 bytes, little-endian
+//   BIG_DECIMAL, BIG_INTEGER     length, ASCII text
+//
+// A key is a varint: 0 introduces a new key (then length << 1 | non-ASCII flag, bytes), which
+// joins the document's key dictionary; n > 0 repeats dictionary entry n - 1. Typed arrays are
+// copied through JsonArray's typed getters and rebuilt with its factories, so their elements
+// are never wrapped on either side.
+public class JsonBinary {
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte ASCII_STRING = 3;
+    static final byte UTF8_STRING = 4;
+    static final byte INTEGER = 5;
+    static final byte NUMBER_TEXT = 6;
+    static final byte OBJECT = 7;
+    static final byte ARRAY = 8;
+    static final byte LONG_ARRAY = 9;
+    static final byte DOUBLE_ARRAY = 10;
+    static final byte BOOLEAN_ARRAY = 11;
+    static final byte INT = 12;
+    static final byte LONG = 13;
+    static final byte SHORT = 14;
+    static final byte BYTE = 15;
+    static final byte DOUBLE = 16;
+    static final byte FLOAT = 17;
+    static final byte BIG_DECIMAL = 18;
+    static final byte BIG_INTEGER = 19;
+
+    private static final byte[] MAGIC = {'J', 'B'};
+
+    // Primitives are immutable, so decoded literals can share one instance each.
+    private static final JsonPrimitive NULL_VALUE = new JsonPrimitive(null);
+    private static final JsonPrimitive FALSE_VALUE = new JsonPrimitive(false);
+    private static final JsonPrimitive TRUE_VALUE = new JsonPrimitive(true);
+    private static final byte VERSION = 1;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private JsonBinary() {
+    }
+
+    public static byte[] encode(JsonValue value) {
+        Encoder encoder = new Encoder();
+        encoder.header();
+        encoder.value(value);
+        return Arrays.copyOf(encoder.buf, encoder.count);
+    }
+
+    // The caller stays responsible for closing the stream.
+    public static void encode(JsonValue value, OutputStream out) {
+        try {
+            out.write(encode(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Throws IllegalArgumentException if the bytes are not a complete encoded value.
+    public static JsonValue decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    public static JsonValue decode(byte[] data, int offset, int length) {
+        Decoder decoder = new Decoder(data, offset, offset + length);
+        try {
+            decoder.header();
+            JsonValue value = decoder.value();
+            if (decoder.pos != decoder.end) {
+                throw decoder.error("Trailing bytes after the value");
+            }
+            return value;
+        } catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated binary JSON");
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed binary JSON at offset " + decoder.pos, e);
+        }
+    }
+
+    // Reads the rest of the stream; the caller stays responsible for closing it.
+    public static JsonValue decode(InputStream in) {
+        try {
+            return decode(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------- ENCODING ----------
+    private static class Encoder {
+        private byte[] buf = new byte[256];
+        private int count;
+        private final Map<String, Integer> keys = new HashMap<>();
+
+        void header() {
+            ensure(3);
+            buf[count++] = MAGIC[0];
+            buf[count++] = MAGIC[1];
+            buf[count++] = VERSION;
+        }
+
+        // Iterative, like JsonWriter.write: each open container is a frame on an explicit stack
+        // (a member iterator for objects, the array and its next index for arrays).
+        void value(JsonValue value) {
+            Object[] frames = new Object[16];
+            int[] next = new int[16];
+            int top = 0;
+
+            while (true) {
+                if (value instanceof JsonArray && typedArray((JsonArray) value)) {
+                    // long[], double[] or boolean storage, written whole
+                } else if (value instanceof JsonObject || value instanceof JsonArray) {
+                    if (top == frames.length) {
+                        frames = Arrays.copyOf(frames, top * 2);
+                        next = Arrays.copyOf(next, top * 2);
+                    }
+                    if (value instanceof JsonObject) {
+                        JsonObject object = (JsonObject) value;
+                        tag(OBJECT);
+                        varint(object.size());
+                        frames[top] = object.getMap().entrySet().iterator();
+                    } else {
+                        JsonArray array = (JsonArray) value;
+                        tag(ARRAY);
+                        varint(array.size());
+                        frames[top] = array;
+                        next[top] = 0;
+                    }
+                    top++;
+                } else if (value instanceof JsonPrimitive) {
+                    primitive(((JsonPrimitive) value).get());
+                } else if (value == null) {
+                    tag(NULL);
+                } else {
+                    throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+                }
+
+                // move to the next member or element, dropping the containers that are done
+                boolean found = false;
+                while (top > 0 && !found) {
+                    Object frame = frames[top - 1];
+                    if (frame instanceof JsonArray) {
+                        JsonArray array = (JsonArray) frame;
+                        if (next[top - 1] < array.size()) {
+                            value = array.get(next[top - 1]++);
+                            found = true;
+                        } else {
+                            frames[--top] = null;
+                        }
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        Iterator<Map.Entry<String, JsonValue>> members = (Iterator<Map.Entry<String, JsonValue>>) frame;
+                        if (members.hasNext()) {
+                            Map.Entry<String, JsonValue> member = members.next();
+                            key(member.getKey());
+                            value = member.getValue();
+                            found = true;
+                        } else {
+                            frames[--top] = null;
+                        }
+                    }
+                }
+                if (!found) return;
+            }
+        }
+
+        private void key(String key) {
+            Integer ref = keys.get(key);
+            if (ref != null) {
+                varint(ref + 1);
+            } else {
+                varint(0);
+                keys.put(key, keys.size());
+                text(key, true);
+            }
+        }
+
+        // Writes the array if it has typed storage; false leaves it to value() as a plain ARRAY.
+        private boolean typedArray(JsonArray array) {
+            int n = array.size();
+            if (n > 0 && array.hasLongStorage()) {
+                tag(LONG_ARRAY);
+                varint(n);
+                for (int i = 0; i < n; i++) {
+                    zigzag(array.getLong(i));
+                }
+            } else if (n > 0 && array.hasDoubleStorage()) {
+                tag(DOUBLE_ARRAY);
+                varint(n);
+                ensure(8 * ((n + 63) / 64) + 8 * n);
+                for (int w = 0; w < n; w += 64) {
+                    long bits = 0;
+                    for (int i = w; i < Math.min(n, w + 64); i++) {
+                        if (array.isInteger(i)) bits |= 1L << i;
+                    }
+                    LONGS.set(buf, count, bits);
+                    count += 8;
+                }
+                for (int i = 0; i < n; i++) {
+                    LONGS.set(buf, count, Double.doubleToRawLongBits(array.getDouble(i)));
+                    count += 8;
+                }
+            } else if (n > 0 && array.hasBooleanStorage()) {
+                tag(BOOLEAN_ARRAY);
+                varint(n);
+                ensure((n + 7) / 8);
+                for (int b = 0; b < n; b += 8) {
+                    int bits = 0;
+                    for (int i = b; i < Math.min(n, b + 8); i++) {
+                        if (array.getBoolean(i)) bits |= 1 << (i - b);
+                    }
+                    buf[count++] = (byte) bits;
+                }
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private void primitive(Object v) {
+            if (v == null) {
+                tag(NULL);
+            } else if (v instanceof String) {
+                text((String) v, false);
+            } else if (v instanceof Boolean) {
+                tag((Boolean) v ? TRUE : FALSE);
+            } else if (v instanceof JsonNumber) {
+                JsonNumber n = (JsonNumber) v;
+                if (n.isLong()) {
+                    tag(INTEGER);
+                    zigzag(n.asLong());
+                } else {
+                    ascii(NUMBER_TEXT, n.toString());
+                }
+            } else if (v instanceof Integer) {
+                tag(INT);
+                zigzag((Integer) v);
+            } else if (v instanceof Long) {
+                tag(LONG);
+                zigzag((Long) v);
+            } else if (v instanceof Short) {
+                tag(SHORT);
+                zigzag((Short) v);
+            } else if (v instanceof Byte) {
+                tag(BYTE);
+                zigzag((Byte) v);
+            } else if (v instanceof Double) {
+                tag(DOUBLE);
+                ensure(8);
+                LONGS.set(buf, count, Double.doubleToRawLongBits((Double) v));
+                count += 8;
+            } else if (v instanceof Float) {
+                tag(FLOAT);
+                ensure(4);
+                INTS.set(buf, count, Float.floatToRawIntBits((Float) v));
+                count += 4;
+            } else if (v instanceof BigDecimal) {
+                ascii(BIG_DECIMAL, v.toString());
+            } else if (v instanceof BigInteger) {
+                ascii(BIG_INTEGER, v.toString());
+            } else if (v instanceof Number) {
+                throw new IllegalArgumentException("Cannot encode a number of type " + v.getClass().getName());
+            } else {
+                throw new IllegalArgumentException("Not a JSON value: " + v.getClass().getName());
+            }
+        }
+
+        // A string value (tag, length, bytes) or a new key (length << 1 | non-ASCII flag, bytes).
+        private void text(String s, boolean key) {
+            int n = s.length();
+            ensure(11 + 3 * n);  // tag, length varint, at most 3 bytes per char
+            int i = 0;
+            while (i < n && s.charAt(i) < 0x80) i++;
+            boolean ascii = i == n;
+
+            int utf8Length = ascii ? n : utf8Length(s);
+            if (key) {
+                varint(utf8Length << 1 | (ascii ? 0 : 1));
+            } else {
+                buf[count++] = ascii ? ASCII_STRING : UTF8_STRING;
+                varint(utf8Length);
+            }
+            if (ascii) {
+                for (int k = 0; k < n; k++) {
+                    buf[count++] = (byte) s.charAt(k);
+                }
+                return;
+            }
+            for (int k = 0; k < n; k++) {
+                char c = s.charAt(k);
+                if (c < 0x80) {
+                    buf[count++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[count++] = (byte) (0xC0 | (c >> 6));
+                    buf[count++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && k + 1 < n && Character.isLowSurrogate(s.charAt(k + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++k));
+                    buf[count++] = (byte) (0xF0 | (cp >> 18));
+                    buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[count++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    buf[count++] = (byte) (0xE0 | (c >> 12));
+                    buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[count++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private static int utf8Length(String s) {
+            int length = 0;
+            int n = s.length();
+            for (int k = 0; k < n; k++) {
+                char c = s.charAt(k);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && k + 1 < n && Character.isLowSurrogate(s.charAt(k + 1))) {
+                    length += 4;
+                    k++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        private void ascii(byte tag, String s) {
+            int n = s.length();
+            ensure(11 + n);
+            buf[count++] = tag;
+            varint(n);
+            for (int k = 0; k < n; k++) {
+                buf[count++] = (byte) s.charAt(k);
+            }
+        }
+
+        private void tag(byte tag) {
+            ensure(1);
+            buf[count++] = tag;
+        }
+
+        private void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        private void varint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte) v;
+        }
+
+        private void ensure(int n) {
+            if (count + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+            }
+        }
+    }
+
+    // ---------- DECODING ----------
+    private static class Decoder {
+        private final byte[] data;
+        private int pos;
+        private final int end;
+        private String[] keys = new String[64];
+        private int keyCount;
+        private char[] chars = new char[64];
+
+        Decoder(byte[] data, int offset, int end) {
+            this.data = data;
+            this.pos = offset;
+            this.end = end;
+        }
+
+        void header() {
+            if (end - pos < 3 || data[pos] != MAGIC[0] || data[pos + 1] != MAGIC[1]) {
+                throw error("Not binary JSON");
+            }
+            if (data[pos + 2] != VERSION) {
+                throw error("Unsupported binary JSON version " + data[pos + 2]);
+            }
+            pos += 3;
+        }
+
+        // Iterative, so nesting depth is bounded only by the input: each open container is a
+        // frame holding the container and the count of its members or elements still to read.
+        JsonValue value() {
+            JsonValue[] open = new JsonValue[16];
+            int[] left = new int[16];
+            int top = 0;
+            JsonValue root = null;
+
+            while (true) {
+                JsonValue parent = top == 0 ? null : open[top - 1];
+                String key = parent instanceof JsonObject ? key() : null;
+                byte tag = next();
+                JsonValue value;
+                int n = 0;
+                if (tag == OBJECT || tag == ARRAY) {
+                    n = length();
+                    value = tag == OBJECT ? new JsonObject() : new JsonArray();
+                } else {
+                    value = scalar(tag);
+                }
+
+                if (parent == null) {
+                    root = value;
+                } else {
+                    if (key != null) {
+                        ((JsonObject) parent).put(key, value);
+                    } else {
+                        ((JsonArray) parent).add(value);
+                    }
+                    left[top - 1]--;
+                }
+                if (n > 0) {
+                    if (top == open.length) {
+                        open = Arrays.copyOf(open, top * 2);
+                        left = Arrays.copyOf(left, top * 2);
+                    }
+                    open[top] = value;
+                    left[top++] = n;
+                }
+
+                while (top > 0 && left[top - 1] == 0) {
+                    open[--top] = null;
+                }
+                if (top == 0) return root;
+            }
+        }
+
+        // Any value but an OBJECT or ARRAY.
+        private JsonValue scalar(byte tag) {
+            switch (tag) {
+                case NULL: return NULL_VALUE;
+                case FALSE: return FALSE_VALUE;
+                case TRUE: return TRUE_VALUE;
+                case ASCII_STRING: return new JsonPrimitive(ascii(length()));
+                case UTF8_STRING: return new JsonPrimitive(utf8(length()));
+                case INTEGER: return new JsonPrimitive(JsonNumber.of(zigzag()));
+                case NUMBER_TEXT: return new JsonPrimitive(JsonNumber.parse(number(length())));
+                case LONG_ARRAY: return longArray();
+                case DOUBLE_ARRAY: return doubleArray();
+                case BOOLEAN_ARRAY: return booleanArray();
+                case INT: return new JsonPrimitive((int) zigzag());
+                case LONG: return new JsonPrimitive(zigzag());
+                case SHORT: return new JsonPrimitive((short) zigzag());
+                case BYTE: return new JsonPrimitive((byte) zigzag());
+                case DOUBLE: return new JsonPrimitive(Double.longBitsToDouble(fixed64()));
+                case FLOAT:
+                    check(4);
+                    float f = Float.intBitsToFloat((int) INTS.get(data, pos));
+                    pos += 4;
+                    return new JsonPrimitive(f);
+                case BIG_DECIMAL:
+                case BIG_INTEGER: return bigNumber(tag, number(length()));
+                default:
+                    pos--;
+                    throw error("Unknown tag " + tag);
+            }
+        }
+
+        private String key() {
+            int ref = length();
+            if (ref > 0) {
+                if (ref > keyCount) throw error("Unknown key reference " + ref);
+                return keys[ref - 1];
+            }
+            int header = length();
+            String key = (header & 1) == 0 ? ascii(header >>> 1) : utf8(header >>> 1);
+            if (keyCount == keys.length) keys = Arrays.copyOf(keys, keyCount * 2);
+            keys[keyCount++] = key;
+            return key;
+        }
+
+        private JsonArray longArray() {
+            int n = length();
+            check(n);  // at least a byte each
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = zigzag();
+            }
+            return JsonArray.ofLongs(values, n);
+        }
+
+        private JsonArray doubleArray() {
+            int n = length();
+            int words = (n + 63) / 64;
+            check(8L * words + 8L * n);
+            long[] integral = new long[words];
+            for (int w = 0; w < words; w++) {
+                integral[w] = (long) LONGS.get(data, pos);
+                pos += 8;
+            }
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = Double.longBitsToDouble((long) LONGS.get(data, pos));
+                pos += 8;
+            }
+            return JsonArray.ofDoubles(values, integral, n);
+        }
+
+        private JsonArray booleanArray() {
+            int n = length();
+            check((n + 7) / 8);
+            long[] bits = new long[(n + 63) / 64];
+            for (int b = 0; b < n; b += 8) {
+                bits[b >>> 6] |= (long) (data[pos++] & 0xFF) << (b & 63);
+            }
+            return JsonArray.ofBooleans(bits, n);
+        }
+
+        private String ascii(int n) {
+            check(n);
+            String s = new String(data, pos, n, StandardCharsets.ISO_8859_1);  // ASCII: one byte per char
+            pos += n;
+            return s;
+        }
+
+        // n bytes of number text, checked against the JSON number grammar (what the encoder
+        // writes for JsonNumber, BigDecimal and BigInteger alike).
+        private String number(int n) {
+            int start = pos;
+            String s = ascii(n);
+            int i = 0;
+            if (i < n && s.charAt(i) == '-') i++;
+            int digits = i;
+            while (i < n && isDigit(s.charAt(i))) i++;
+            boolean valid = i > digits && (s.charAt(digits) != '0' || i == digits + 1);
+            if (valid && i < n && s.charAt(i) == '.') {
+                int fraction = ++i;
+                while (i < n && isDigit(s.charAt(i))) i++;
+                valid = i > fraction;
+            }
+            if (valid && i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+                i++;
+                if (i < n && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+                int exponent = i;
+                while (i < n && isDigit(s.charAt(i))) i++;
+                valid = i > exponent;
+            }
+            if (!valid || i != n) {
+                pos = start;
+                throw error("Malformed number");
+            }
+            return s;
+        }
+
+        // Also rejects what the grammar allows but the type does not: a fraction in a BigInteger,
+        // an exponent beyond BigDecimal's range.
+        private JsonValue bigNumber(byte tag, String text) {
+            try {
+                return new JsonPrimitive(tag == BIG_DECIMAL ? (Number) new BigDecimal(text) : new BigInteger(text));
+            } catch (NumberFormatException e) {
+                throw error("Malformed number");
+            }
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private String utf8(int n) {
+            check(n);
+            if (chars.length < n) chars = new char[Math.max(n, chars.length * 2)];
+            int stop = pos + n;
+            int k = 0;
+            while (pos < stop) {
+                int b = data[pos] & 0xFF;
+                if (b < 0x80) {
+                    chars[k++] = (char) b;
+                    pos++;
+                } else if (b < 0xE0) {
+                    chars[k++] = (char) ((b & 0x1F) << 6 | (data[pos + 1] & 0x3F));
+                    pos += 2;
+                } else if (b < 0xF0) {
+                    chars[k++] = (char) ((b & 0x0F) << 12 | (data[pos + 1] & 0x3F) << 6 | (data[pos + 2] & 0x3F));
+                    pos += 3;
+                } else {
+                    int cp = (b & 0x07) << 18 | (data[pos + 1] & 0x3F) << 12 | (data[pos + 2] & 0x3F) << 6 | (data[pos + 3] & 0x3F);
+                    chars[k++] = Character.highSurrogate(cp);
+                    chars[k++] = Character.lowSurrogate(cp);
+                    pos += 4;
+                }
+            }
+            if (pos != stop) throw error("Malformed UTF-8");
+            return new String(chars, 0, k);
+        }
+
+        private byte next() {
+            check(1);
+            return data[pos++];
+        }
+
+        private long fixed64() {
+            check(8);
+            long v = (long) LONGS.get(data, pos);
+            pos += 8;
+            return v;
+        }
+
+        // A count or length: a varint that must fit an int.
+        private int length() {
+            long v = varint();
+            if (v > Integer.MAX_VALUE) throw error("Length out of range");
+            return (int) v;
+        }
+
+        private long zigzag() {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private long varint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw error("Malformed varint");
+        }
+
+        private void check(long n) {
+            if (n > end - pos) throw new IllegalArgumentException("Truncated binary JSON");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + pos);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package jsonparser.bind;
+
+import jsonparser.lexer.*;
+import jsonparser.parser.*;
+import jsonparser.util.*;
+
+// The token stream as codecs see it: a LexerCursor plus the checks and errors of the Parser.
+// Object keys go through a symbol table, so repeated keys are looked up without being allocated.
+// Unless the lexer already has a table, it gets its thread's, which outlives a single read:
+// the keys of a bound type are then hits from the second document on.
+final class BindReader {
+    static final int MAX_DEPTH = 1000;
+    private static final ThreadLocal<SymbolTable> KEYS = ThreadLocal.withInitial(SymbolTable::new);
+
+    private final LexerCursor tokens;
+    private final String source;  // for error snippets, may be null
+    private int depth = 0;
+
+    BindReader(Lexer lexer, String source) {
+        if (lexer.getKeyTable() == null) {
+            lexer.setKeyTable(KEYS.get());
+        }
+        this.tokens = new LexerCursor(lexer);
+        this.source = source;
+    }
+
+    TokenType type() {
+        return tokens.type();
+    }
+
+    void expect(TokenType type) {
+        TokenType actual = tokens.type();
+        if (actual != type) {
+            throw error("Expected " + type + " but got " + actual);
+        }
+        tokens.advance();
+    }
+
+    // True (and consumed) if the current token is null.
+    boolean nextIsNull() {
+        if (tokens.type() != TokenType.NULL) return false;
+        tokens.advance();
+        return true;
+    }
+
+    String readString() {
+        if (tokens.type() != TokenType.STRING) {
+            throw error("Expected STRING but got " + tokens.type());
+        }
+        String value = tokens.value();
+        tokens.advance();
+        return value;
+    }
+
+    JsonNumber readNumber() {
+        JsonNumber value = number();
+        tokens.advance();
+        return value;
+    }
+
+    // The current number, not yet consumed, so range errors point at it.
+    private JsonNumber number() {
+        if (tokens.type() != TokenType.NUMBER) {
+            throw error("Expected NUMBER but got " + tokens.type());
+        }
+        return tokens.number();
+    }
+
+    // An integer within [min, max].
+    long readLong(long min, long max, String typeName) {
+        JsonNumber n = number();
+        long value;
+        try {
+            value = n.asLong();
+        } catch (ArithmeticException e) {
+            throw error("Expected " + typeName + " but got " + n);
+        }
+        if (value < min || value > max) {
+            throw error("Expected " + typeName + " but got " + n);
+        }
+        tokens.advance();
+        return value;
+    }
+
+    // A finite double: 1e400 does not silently become Infinity, which could not be written back.
+    double readDouble() {
+        JsonNumber n = number();
+        double value = n.asDouble();
+        if (Double.isInfinite(value)) {
+            throw error("Expected double but got " + n);
+        }
+        tokens.advance();
+        return value;
+    }
+
+    float readFloat() {
+        JsonNumber n = number();
+        float value = (float) n.asDouble();
+        if (Float.isInfinite(value)) {
+            throw error("Expected float but got " + n);
+        }
+        tokens.advance();
+        return value;
+    }
+
+    boolean readBoolean() {
+        TokenType type = tokens.type();
+        if (type != TokenType.TRUE && type != TokenType.FALSE) {
+            throw error("Expected BOOLEAN but got " + type);
+        }
+        tokens.advance();
+        return type == TokenType.TRUE;
+    }
+
+    // ---------- CONTAINERS ----------
+    // Consumes '{' or '[' and returns whether the container has a first member / element.
+    boolean beginObject() {
+        enter(TokenType.LEFT_BRACE);
+        return !end(TokenType.RIGHT_BRACE);
+    }
+
+    boolean beginArray() {
+        enter(TokenType.LEFT_BRACKET);
+        return !end(TokenType.RIGHT_BRACKET);
+    }
+
+    // The member's key, with the colon after it consumed.
+    String readKey() {
+        String key = readString();
+        expect(TokenType.COLON);
+        return key;
+    }
+
+    // After a member: true if another one follows, false once '}' is consumed.
+    boolean nextMember() {
+        return next(TokenType.RIGHT_BRACE);
+    }
+
+    boolean nextElement() {
+        return next(TokenType.RIGHT_BRACKET);
+    }
+
+    // Moves past a value nobody binds; it is still validated.
+    void skipValue() {
+        new Parser(tokens, source).readValue(null);
+    }
+
+    // Reads the current value as a tree.
+    JsonValue readTree() {
+        return new Parser(tokens, source).readValue();
+    }
+
+    void expectEnd() {
+        expect(TokenType.EOF);
+    }
+
+    ParserException error(String message) {
+        return ParserException.at(message, tokens.line(), tokens.column(), source);
+    }
+
+    private void enter(TokenType open) {
+        if (depth >= MAX_DEPTH) {
+            throw error("Maximum nesting depth of " + MAX_DEPTH + " exceeded");
+        }
+        expect(open);
+        depth++;
+    }
+
+    private boolean end(TokenType close) {
+        if (tokens.type() != close) return false;
+        tokens.advance();
+        depth--;
+        return true;
+    }
+
+    private boolean next(TokenType close) {
+        if (tokens.type() == TokenType.COMMA) {
+            tokens.advance();
+            return true;
+        }
+        expect(close);
+        depth--;
+        return false;
+    }
+}
@@ -0,0 +1,12 @@
+package jsonparser.bind;
+
+import jsonparser.writer.JsonWriter;
+
+// Reads one Java type from the token stream and writes it back as events. Codecs are built
+// once per type (see JsonBinder) and hold everything they need, so they never look anything up
+// while reading or writing. Null is handled by the caller.
+abstract class Codec {
+    abstract Object read(BindReader in);
+
+    abstract void write(Object value, JsonWriter out);
+}
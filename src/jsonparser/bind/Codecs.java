@@ -0,0 +1,527 @@
+package jsonparser.bind;
+
+import jsonparser.parser.*;
+import jsonparser.util.JsonNumber;
+import jsonparser.writer.JsonWriter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+// The built-in codecs, and the choice of codec for a type.
+final class Codecs {
+
+    private Codecs() {
+    }
+
+    // Codec of a class: built-in for scalars, JsonValues, enums, arrays, collections and maps,
+    // an ObjectCodec for records and other classes. Elements of raw collections are Objects.
+    static Codec create(Class<?> type) {
+        if (type == String.class) return STRING;
+        if (type == boolean.class || type == Boolean.class) return BOOLEAN;
+        if (type == int.class || type == Integer.class) return INT;
+        if (type == long.class || type == Long.class) return LONG;
+        if (type == double.class || type == Double.class) return DOUBLE;
+        if (type == float.class || type == Float.class) return FLOAT;
+        if (type == short.class || type == Short.class) return SHORT;
+        if (type == byte.class || type == Byte.class) return BYTE;
+        if (type == char.class || type == Character.class) return CHAR;
+        if (type == BigDecimal.class) return BIG_DECIMAL;
+        if (type == BigInteger.class) return BIG_INTEGER;
+        if (type == JsonNumber.class || type == Number.class) return NUMBER;
+        if (type == Object.class) return DYNAMIC;
+        if (JsonValue.class.isAssignableFrom(type)) return new TreeCodec(type);
+        if (type.isEnum()) return new EnumCodec(type);
+        if (type.isArray()) return array(type.getComponentType(), type.getComponentType());
+        if (Collection.class.isAssignableFrom(type)) return collection(type, DYNAMIC);
+        if (Map.class.isAssignableFrom(type)) return map(type, DYNAMIC);
+        if (type.isPrimitive() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                || type.getName().startsWith("java.")) {
+            throw new IllegalArgumentException("No codec for " + type.getName());
+        }
+        return new ObjectCodec(type);
+    }
+
+    // Codec of a declared type; type arguments of collections and maps pick the element codec.
+    static Codec create(Type type) {
+        if (type instanceof Class) {
+            return JsonBinder.codec((Class<?>) type);
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType p = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) p.getRawType();
+            Type[] args = p.getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw)) {
+                return collection(raw, create(args[0]));
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                if (rawClass(args[0]) != String.class && rawClass(args[0]) != Object.class) {
+                    throw new IllegalArgumentException("Map keys must be strings: " + type);
+                }
+                return map(raw, create(args[1]));
+            }
+            return JsonBinder.codec(raw);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            return array(rawClass(component), component);
+        }
+        return JsonBinder.codec(rawClass(type));
+    }
+
+    // Erasure of a declared type (type variables and wildcards fall back to their bound).
+    static Class<?> rawClass(Type type) {
+        if (type instanceof Class) return (Class<?>) type;
+        if (type instanceof ParameterizedType) return rawClass(((ParameterizedType) type).getRawType());
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        if (type instanceof TypeVariable) return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+        return Object.class;
+    }
+
+    // Reads a value that may be null; primitives never are.
+    static Object readNullable(Codec codec, BindReader in) {
+        return in.nextIsNull() ? null : codec.read(in);
+    }
+
+    static void writeNullable(Codec codec, Object value, JsonWriter out) {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            codec.write(value, out);
+        }
+    }
+
+    // Called before a codec opens an object or array for a Java object: the nesting limit of
+    // reading, so an object graph with a cycle fails instead of overflowing the stack.
+    static void checkDepth(JsonWriter out) {
+        if (out.getDepth() >= BindReader.MAX_DEPTH) {
+            throw new IllegalArgumentException("Maximum nesting depth of " + BindReader.MAX_DEPTH
+                    + " exceeded (does the object graph have a cycle?)");
+        }
+    }
+
+    // ---------- SCALARS ----------
+    static final Codec STRING = new Codec() {
+        Object read(BindReader in) {
+            return in.readString();
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.stringValue((String) value);
+        }
+    };
+
+    static final Codec BOOLEAN = new Codec() {
+        Object read(BindReader in) {
+            return in.readBoolean();
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.booleanValue((Boolean) value);
+        }
+    };
+
+    static final Codec INT = new Codec() {
+        Object read(BindReader in) {
+            return (int) in.readLong(Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((long) (Integer) value);
+        }
+    };
+
+    static final Codec LONG = new Codec() {
+        Object read(BindReader in) {
+            return in.readLong(Long.MIN_VALUE, Long.MAX_VALUE, "long");
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((long) (Long) value);
+        }
+    };
+
+    static final Codec SHORT = new Codec() {
+        Object read(BindReader in) {
+            return (short) in.readLong(Short.MIN_VALUE, Short.MAX_VALUE, "short");
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((long) (Short) value);
+        }
+    };
+
+    static final Codec BYTE = new Codec() {
+        Object read(BindReader in) {
+            return (byte) in.readLong(Byte.MIN_VALUE, Byte.MAX_VALUE, "byte");
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((long) (Byte) value);
+        }
+    };
+
+    static final Codec DOUBLE = new Codec() {
+        Object read(BindReader in) {
+            return in.readDouble();
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((double) (Double) value);
+        }
+    };
+
+    static final Codec FLOAT = new Codec() {
+        Object read(BindReader in) {
+            return in.readFloat();
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((Float) value);
+        }
+    };
+
+    // A one-char string.
+    static final Codec CHAR = new Codec() {
+        Object read(BindReader in) {
+            String s = in.readString();
+            if (s.length() != 1) {
+                throw in.error("Expected a single character but got \"" + s + "\"");
+            }
+            return s.charAt(0);
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.stringValue(String.valueOf((char) (Character) value));
+        }
+    };
+
+    static final Codec BIG_DECIMAL = new Codec() {
+        Object read(BindReader in) {
+            JsonNumber n = in.readNumber();
+            try {
+                return n.asBigDecimal();
+            } catch (ArithmeticException e) {
+                throw in.error("Expected BigDecimal but got " + n);
+            }
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((BigDecimal) value);
+        }
+    };
+
+    static final Codec BIG_INTEGER = new Codec() {
+        Object read(BindReader in) {
+            JsonNumber n = in.readNumber();
+            try {
+                return n.asBigDecimal().toBigIntegerExact();
+            } catch (ArithmeticException e) {
+                throw in.error("Expected BigInteger but got " + n);
+            }
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((BigInteger) value);
+        }
+    };
+
+    // Number fields keep the number as read, spelling included.
+    static final Codec NUMBER = new Codec() {
+        Object read(BindReader in) {
+            return in.readNumber();
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.numberValue((Number) value);
+        }
+    };
+
+    // Object fields: read as a JsonValue tree, written after the runtime class of the value.
+    static final Codec DYNAMIC = new Codec() {
+        Object read(BindReader in) {
+            return in.readTree();
+        }
+
+        void write(Object value, JsonWriter out) {
+            JsonBinder.codec(value.getClass()).write(value, out);
+        }
+    };
+
+    static final class TreeCodec extends Codec {
+        private final Class<?> type;
+
+        TreeCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        Object read(BindReader in) {
+            JsonValue value = in.readTree();
+            if (!type.isInstance(value)) {
+                throw in.error("Expected " + type.getSimpleName() + " but got " + value.getClass().getSimpleName());
+            }
+            return value;
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.write((JsonValue) value);
+        }
+    }
+
+    // Constants by name.
+    static final class EnumCodec extends Codec {
+        private final Map<String, Object> constants = new HashMap<>();
+        private final String typeName;
+
+        EnumCodec(Class<?> type) {
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+            this.typeName = type.getSimpleName();
+        }
+
+        Object read(BindReader in) {
+            String name = in.readString();
+            Object constant = constants.get(name);
+            if (constant == null) {
+                throw in.error("Unknown " + typeName + " constant: " + name);
+            }
+            return constant;
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.stringValue(((Enum<?>) value).name());
+        }
+    }
+
+    // ---------- ARRAYS ----------
+    private static Codec array(Class<?> component, Type declared) {
+        if (component == int.class) return INT_ARRAY;
+        if (component == long.class) return LONG_ARRAY;
+        if (component == double.class) return DOUBLE_ARRAY;
+        if (component == boolean.class) return BOOLEAN_ARRAY;
+        if (component.isPrimitive()) {
+            throw new IllegalArgumentException("No codec for " + component.getName() + "[]");
+        }
+        return new ArrayCodec(component, create(declared));
+    }
+
+    static final Codec INT_ARRAY = new Codec() {
+        Object read(BindReader in) {
+            int[] values = new int[8];
+            int n = 0;
+            if (in.beginArray()) {
+                do {
+                    if (n == values.length) values = Arrays.copyOf(values, n * 2);
+                    values[n++] = (int) in.readLong(Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+                } while (in.nextElement());
+            }
+            return Arrays.copyOf(values, n);
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.startArray();
+            for (int v : (int[]) value) out.numberValue((long) v);
+            out.endArray();
+        }
+    };
+
+    static final Codec LONG_ARRAY = new Codec() {
+        Object read(BindReader in) {
+            long[] values = new long[8];
+            int n = 0;
+            if (in.beginArray()) {
+                do {
+                    if (n == values.length) values = Arrays.copyOf(values, n * 2);
+                    values[n++] = in.readLong(Long.MIN_VALUE, Long.MAX_VALUE, "long");
+                } while (in.nextElement());
+            }
+            return Arrays.copyOf(values, n);
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.startArray();
+            for (long v : (long[]) value) out.numberValue(v);
+            out.endArray();
+        }
+    };
+
+    static final Codec DOUBLE_ARRAY = new Codec() {
+        Object read(BindReader in) {
+            double[] values = new double[8];
+            int n = 0;
+            if (in.beginArray()) {
+                do {
+                    if (n == values.length) values = Arrays.copyOf(values, n * 2);
+                    values[n++] = in.readDouble();
+                } while (in.nextElement());
+            }
+            return Arrays.copyOf(values, n);
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.startArray();
+            for (double v : (double[]) value) out.numberValue(v);
+            out.endArray();
+        }
+    };
+
+    static final Codec BOOLEAN_ARRAY = new Codec() {
+        Object read(BindReader in) {
+            boolean[] values = new boolean[8];
+            int n = 0;
+            if (in.beginArray()) {
+                do {
+                    if (n == values.length) values = Arrays.copyOf(values, n * 2);
+                    values[n++] = in.readBoolean();
+                } while (in.nextElement());
+            }
+            return Arrays.copyOf(values, n);
+        }
+
+        void write(Object value, JsonWriter out) {
+            out.startArray();
+            for (boolean v : (boolean[]) value) out.booleanValue(v);
+            out.endArray();
+        }
+    };
+
+    static final class ArrayCodec extends Codec {
+        private final Object[] empty;  // typed zero-length array, the template for toArray()
+        private final Codec element;
+
+        ArrayCodec(Class<?> component, Codec element) {
+            this.empty = (Object[]) Array.newInstance(component, 0);
+            this.element = element;
+        }
+
+        Object read(BindReader in) {
+            List<Object> values = new ArrayList<>();
+            if (in.beginArray()) {
+                do {
+                    values.add(readNullable(element, in));
+                } while (in.nextElement());
+            }
+            return values.toArray(empty);
+        }
+
+        void write(Object value, JsonWriter out) {
+            checkDepth(out);
+            out.startArray();
+            for (Object v : (Object[]) value) writeNullable(element, v, out);
+            out.endArray();
+        }
+    }
+
+    // ---------- COLLECTIONS ----------
+    private static Codec collection(Class<?> type, Codec element) {
+        Class<?> impl = type;
+        if (type.isAssignableFrom(ArrayList.class)) impl = ArrayList.class;
+        else if (type.isAssignableFrom(LinkedHashSet.class)) impl = LinkedHashSet.class;
+        else if (type.isAssignableFrom(TreeSet.class)) impl = TreeSet.class;
+        return new CollectionCodec(impl, element);
+    }
+
+    private static Codec map(Class<?> type, Codec value) {
+        Class<?> impl = type;
+        if (type.isAssignableFrom(LinkedHashMap.class)) impl = LinkedHashMap.class;
+        else if (type.isAssignableFrom(TreeMap.class)) impl = TreeMap.class;
+        return new MapCodec(impl, value);
+    }
+
+    // No-argument constructor as a ()Object handle.
+    static MethodHandle constructor(Class<?> type) {
+        try {
+            Constructor<?> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot read " + type.getName() + ": it needs a no-argument constructor", e);
+        }
+    }
+
+    static Object invoke(MethodHandle create) {
+        try {
+            return (Object) create.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // Collections and maps find their constructor on first read, so that any instance can be written.
+    static final class CollectionCodec extends Codec {
+        private final Class<?> type;
+        private final Codec element;
+        private MethodHandle create;
+
+        CollectionCodec(Class<?> type, Codec element) {
+            this.type = type;
+            this.element = element;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object read(BindReader in) {
+            if (create == null) create = constructor(type);
+            Collection<Object> values = (Collection<Object>) invoke(create);
+            if (in.beginArray()) {
+                do {
+                    values.add(readNullable(element, in));
+                } while (in.nextElement());
+            }
+            return values;
+        }
+
+        void write(Object value, JsonWriter out) {
+            checkDepth(out);
+            out.startArray();
+            for (Object v : (Collection<?>) value) writeNullable(element, v, out);
+            out.endArray();
+        }
+    }
+
+    static final class MapCodec extends Codec {
+        private final Class<?> type;
+        private final Codec value;
+        private MethodHandle create;
+
+        MapCodec(Class<?> type, Codec value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object read(BindReader in) {
+            if (create == null) create = constructor(type);
+            Map<String, Object> members = (Map<String, Object>) invoke(create);
+            if (in.beginObject()) {
+                do {
+                    String key = in.readKey();
+                    members.put(key, readNullable(value, in));
+                } while (in.nextMember());
+            }
+            return members;
+        }
+
+        void write(Object map, JsonWriter out) {
+            checkDepth(out);
+            out.startObject();
+            for (Map.Entry<?, ?> member : ((Map<?, ?>) map).entrySet()) {
+                if (!(member.getKey() instanceof String)) {
+                    throw new IllegalArgumentException("Map keys must be strings: " + member.getKey());
+                }
+                out.key((String) member.getKey());
+                writeNullable(value, member.getValue(), out);
+            }
+            out.endObject();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package jsonparser.bind;
+
+import jsonparser.lexer.Lexer;
+import jsonparser.writer.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Maps JSON straight to Java objects and back, without a JsonValue tree in between: values are
+// read from the lexer's token stream and written as events into a JsonWriter.
+//
+//   record User(long id, String name, List<String> tags) {}
+//   User user = JsonBinder.read(json, User.class);
+//   String text = JsonBinder.write(user);
+//
+// Supported: records and classes with a no-argument constructor (see ObjectCodec), String,
+// primitives and their wrappers, BigDecimal, BigInteger, Number (kept as a JsonNumber), enums
+// (by name), arrays, collections, Map<String, V>, and JsonValue types. Object properties hold
+// a JsonValue when read and are written after their runtime class.
+//
+// The codec of each class is built once and cached; building it fails with an
+// IllegalArgumentException when the class cannot be bound. Malformed input and values of the
+// wrong type fail with a ParserException that has the Parser's messages and positions.
+public class JsonBinder {
+    private static final ClassValue<Codec> CODECS = new ClassValue<>() {
+        @Override
+        protected Codec computeValue(Class<?> type) {
+            return Codecs.create(type);
+        }
+    };
+
+    private JsonBinder() {
+    }
+
+    public static <T> T read(String json, Class<T> type) {
+        return read(new Lexer(json), json, type);
+    }
+
+    // Streams through a fixed-size buffer; the caller stays responsible for closing the input.
+    public static <T> T read(Reader in, Class<T> type) {
+        return read(new Lexer(in).setKeepLineHistory(false), null, type);
+    }
+
+    // Reads the stream as UTF-8.
+    public static <T> T read(InputStream in, Class<T> type) {
+        return read(new Lexer(in).setKeepLineHistory(false), null, type);
+    }
+
+    public static String write(Object value) {
+        return write(value, false);
+    }
+
+    public static String write(Object value, boolean pretty) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(value, new JsonWriter(out).setPretty(pretty));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Writes UTF-8; the caller stays responsible for closing the stream.
+    public static void write(Object value, OutputStream out) {
+        write(value, new JsonWriter(out));
+    }
+
+    public static void write(Object value, Writer out) {
+        write(value, new JsonWriter(out));
+    }
+
+    // Writes the value as the next root of the writer and flushes it.
+    public static void write(Object value, JsonWriter out) {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            codec(value.getClass()).write(value, out);
+        }
+        out.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T read(Lexer lexer, String source, Class<T> type) {
+        BindReader in = new BindReader(lexer, source);
+        Codec codec = codec(type);
+        T value = (T) (type.isPrimitive() ? codec.read(in) : Codecs.readNullable(codec, in));
+        in.expectEnd();
+        return value;
+    }
+
+    static Codec codec(Class<?> type) {
+        return CODECS.get(type);
+    }
+}
@@ -0,0 +1,228 @@
+package jsonparser.bind;
+
+import jsonparser.writer.JsonWriter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+
+// Records and plain classes as JSON objects. Reflection runs once, when the codec is built:
+// each property gets method handles for its accessor (and setter) and the key-to-property map
+// is fixed, so reading and writing only invoke handles. int, long, double and boolean
+// properties of plain classes are read and written without boxing.
+//
+// Records are built through their canonical constructor, plain classes through a no-argument
+// constructor and then their fields (static and transient ones excluded, superclass fields
+// first). Unknown keys are skipped, missing ones keep their default value; nulls are written.
+final class ObjectCodec extends Codec {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Property[] properties;
+    private final Map<String, Property> byKey = new HashMap<>();
+    private final Class<?> type;
+    private MethodHandle create;         // records: (Object[])Object, others: ()Object, found on first read
+    private final Object[] defaults;     // record constructor arguments for missing keys
+
+    ObjectCodec(Class<?> type) {
+        this.type = type;
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                properties = new Property[components.length];
+                defaults = new Object[components.length];
+                Class<?>[] types = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    RecordComponent c = components[i];
+                    Method accessor = c.getAccessor();
+                    accessor.setAccessible(true);
+                    properties[i] = new Property(c.getName(), i, c.getGenericType(), LOOKUP.unreflect(accessor), null);
+                    types[i] = c.getType();
+                    defaults[i] = defaultValue(c.getType());
+                }
+                Constructor<?> canonical = type.getDeclaredConstructor(types);
+                canonical.setAccessible(true);
+                create = LOOKUP.unreflectConstructor(canonical)
+                        .asType(MethodType.genericMethodType(components.length))
+                        .asSpreader(Object[].class, components.length);
+            } else {
+                List<Property> fields = new ArrayList<>();
+                collectFields(type, fields);
+                properties = fields.toArray(new Property[0]);
+                defaults = null;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (e instanceof IllegalArgumentException) throw (IllegalArgumentException) e;
+            throw new IllegalArgumentException("No codec for " + type.getName() + ": " + e.getMessage(), e);
+        }
+        for (Property p : properties) {
+            byKey.put(p.name, p);
+        }
+    }
+
+    private static void collectFields(Class<?> type, List<Property> fields) throws IllegalAccessException {
+        if (type == Object.class) return;
+        collectFields(type.getSuperclass(), fields);
+        for (Field f : type.getDeclaredFields()) {
+            int modifiers = f.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || f.isSynthetic()) continue;
+            f.setAccessible(true);
+            fields.removeIf(p -> p.name.equals(f.getName()));  // a subclass field hides the inherited one
+            fields.add(new Property(f.getName(), fields.size(), f.getGenericType(),
+                    LOOKUP.unreflectGetter(f), LOOKUP.unreflectSetter(f)));
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return 0;
+    }
+
+    // ---------- READING ----------
+    @Override
+    Object read(BindReader in) {
+        if (defaults != null) {
+            Object[] args = defaults.clone();
+            if (in.beginObject()) {
+                do {
+                    Property p = byKey.get(in.readKey());
+                    if (p == null) {
+                        in.skipValue();
+                    } else {
+                        args[p.index] = p.readValue(in);
+                    }
+                } while (in.nextMember());
+            }
+            try {
+                return (Object) create.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        if (create == null) create = Codecs.constructor(type);
+        Object target = Codecs.invoke(create);
+        if (in.beginObject()) {
+            do {
+                Property p = byKey.get(in.readKey());
+                if (p == null) {
+                    in.skipValue();
+                } else {
+                    p.readInto(target, in);
+                }
+            } while (in.nextMember());
+        }
+        return target;
+    }
+
+    // ---------- WRITING ----------
+    @Override
+    void write(Object value, JsonWriter out) {
+        Codecs.checkDepth(out);
+        out.startObject();
+        for (Property p : properties) {
+            out.key(p.name);
+            p.write(value, out);
+        }
+        out.endObject();
+    }
+
+    // One record component or field. kind is 'I', 'J', 'D' or 'Z' for the primitives read and
+    // written unboxed, 'L' for everything else (through the codec of the declared type).
+    private static final class Property {
+        final String name;
+        final int index;
+        private final Type type;
+        private final Class<?> raw;
+        private final char kind;
+        private final MethodHandle getter;  // (Object)int / long / double / boolean / Object
+        private final MethodHandle setter;  // (Object, same)void; null for record components
+        private Codec codec;                // resolved on first use, so types may refer to themselves
+
+        Property(String name, int index, Type type, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.index = index;
+            this.type = type;
+            this.raw = Codecs.rawClass(type);
+            this.kind = raw == int.class ? 'I' : raw == long.class ? 'J' : raw == double.class ? 'D'
+                    : raw == boolean.class ? 'Z' : 'L';
+            Class<?> slot = kind == 'L' ? Object.class : raw;
+            this.getter = getter.asType(MethodType.methodType(slot, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, slot));
+        }
+
+        private Codec codec() {
+            Codec c = codec;
+            if (c == null) {
+                c = Codecs.create(type);
+                codec = c;
+            }
+            return c;
+        }
+
+        // The value, boxed (record constructor arguments).
+        Object readValue(BindReader in) {
+            return raw.isPrimitive() ? codec().read(in) : Codecs.readNullable(codec(), in);
+        }
+
+        void readInto(Object target, BindReader in) {
+            try {
+                switch (kind) {
+                    case 'I':
+                        setter.invokeExact(target, (int) in.readLong(Integer.MIN_VALUE, Integer.MAX_VALUE, "int"));
+                        break;
+                    case 'J':
+                        setter.invokeExact(target, in.readLong(Long.MIN_VALUE, Long.MAX_VALUE, "long"));
+                        break;
+                    case 'D':
+                        setter.invokeExact(target, in.readDouble());
+                        break;
+                    case 'Z':
+                        setter.invokeExact(target, in.readBoolean());
+                        break;
+                    default:
+                        setter.invokeExact(target, readValue(in));
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        void write(Object owner, JsonWriter out) {
+            try {
+                switch (kind) {
+                    case 'I':
+                        out.numberValue((long) (int) getter.invokeExact(owner));
+                        break;
+                    case 'J':
+                        out.numberValue((long) getter.invokeExact(owner));
+                        break;
+                    case 'D':
+                        out.numberValue((double) getter.invokeExact(owner));
+                        break;
+                    case 'Z':
+                        out.booleanValue((boolean) getter.invokeExact(owner));
+                        break;
+                    default:
+                        Codecs.writeNullable(codec(), (Object) getter.invokeExact(owner), out);
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package jsonparser.lazy;
+
+import jsonparser.lexer.*;
+import jsonparser.parser.*;
+import jsonparser.util.*;
+
+import java.util.Arrays;
+
+// Validates a document in one pass and records where its values are, without building them.
+// The index is a tape with one entry per value and per object key, in document order:
+//
+//   kinds[i]   OBJECT, ARRAY, KEY, STRING, NUMBER, TRUE, FALSE or NULL
+//   a[i], b[i] containers: number of children, and the entry just past the subtree;
+//              keys, strings and numbers: start and end of their text in the source
+//              (inside the quotes for keys and strings)
+//
+// parse() returns the root as a LazyJsonObject / LazyJsonArray, which decode their own
+// children from the tape the first time they are used; nested containers stay lazy until
+// they are used in turn. Grammar and errors are those of the Parser, since the document is
+// fully validated up front. Lazy values are not thread-safe until materialized.
+public class JsonIndex {
+    static final byte OBJECT = 1;
+    static final byte ARRAY = 2;
+    static final byte KEY = 3;
+    static final byte STRING = 4;
+    static final byte NUMBER = 5;
+    static final byte TRUE = 6;
+    static final byte FALSE = 7;
+    static final byte NULL = 8;
+
+    private final String source;
+    private byte[] kinds = new byte[64];
+    private int[] a = new int[64];
+    private int[] b = new int[64];
+    private int size = 0;
+
+    private JsonIndex(String source) {
+        this.source = source;
+    }
+
+    // The document's root; containers are materialized on first use.
+    public static JsonValue parse(String json) {
+        return build(json).root();
+    }
+
+    public static JsonIndex build(String json) {
+        JsonIndex index = new JsonIndex(json);
+        new Builder(index).run();
+        return index;
+    }
+
+    public JsonValue root() {
+        return value(0);
+    }
+
+    // Number of tape entries.
+    public int size() {
+        return size;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // ---------- MATERIALIZING ----------
+    // Value of entry i: containers come back lazy, scalars decoded.
+    JsonValue value(int i) {
+        switch (kinds[i]) {
+            case OBJECT:
+                return new LazyJsonObject(this, i);
+            case ARRAY:
+                return new LazyJsonArray(this, i);
+            case STRING:
+                return new JsonPrimitive(JsonStrings.unescape(source, a[i], b[i]));
+            case NUMBER:
+                return new JsonPrimitive(JsonNumber.parse(source, a[i], b[i]));
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            default:
+                return new JsonPrimitive(null);
+        }
+    }
+
+    void fill(JsonObject object, int entry) {
+        for (int i = entry + 1; i < b[entry]; i = next(i + 1)) {
+            object.put(JsonStrings.unescape(source, a[i], b[i]), value(i + 1));
+        }
+    }
+
+    void fill(JsonArray array, int entry) {
+        for (int i = entry + 1; i < b[entry]; i = next(i)) {
+            array.add(value(i));
+        }
+    }
+
+    // Number of members or elements of a container entry.
+    int childCount(int entry) {
+        return a[entry];
+    }
+
+    // Raw tape entry i, see the layout above.
+    byte kind(int i) {
+        return kinds[i];
+    }
+
+    int first(int i) {
+        return a[i];
+    }
+
+    int second(int i) {
+        return b[i];
+    }
+
+    // Entry just past the value at entry i.
+    private int next(int i) {
+        return kinds[i] == OBJECT || kinds[i] == ARRAY ? b[i] : i + 1;
+    }
+
+    private int add(byte kind, int first, int second) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            a = Arrays.copyOf(a, size * 2);
+            b = Arrays.copyOf(b, size * 2);
+        }
+        kinds[size] = kind;
+        a[size] = first;
+        b[size] = second;
+        return size++;
+    }
+
+    // ---------- BUILDING ----------
+    // The Parser's grammar, run over a LexerCursor in scan mode so that no token is
+    // materialized; token offsets come straight from the lexer.
+    private static class Builder {
+        private final JsonIndex index;
+        private final String source;
+        private final Lexer lexer;
+        private final LexerCursor tokens;
+        private int[] open = new int[32];  // entries of the open containers
+        private int depth = 0;
+
+        Builder(JsonIndex index) {
+            this.index = index;
+            this.source = index.source;
+            this.lexer = new Lexer(source);
+            this.tokens = new LexerCursor(lexer);
+            tokens.setMaterialize(false);
+        }
+
+        void run() {
+            while (true) {
+                TokenType type = tokens.type();
+                switch (type) {
+                    case LEFT_BRACE:
+                        push(index.add(OBJECT, 0, 0));
+                        tokens.advance();
+                        if (tokens.type() != TokenType.RIGHT_BRACE) {
+                            readKey();
+                            continue;
+                        }
+                        tokens.advance();
+                        close();
+                        break;
+                    case LEFT_BRACKET:
+                        push(index.add(ARRAY, 0, 0));
+                        tokens.advance();
+                        if (tokens.type() != TokenType.RIGHT_BRACKET) {
+                            continue;
+                        }
+                        tokens.advance();
+                        close();
+                        break;
+                    case STRING:
+                        index.add(STRING, (int) lexer.getTokenStart() + 1, (int) lexer.getTokenEnd() - 1);
+                        tokens.advance();
+                        break;
+                    case NUMBER:
+                        index.add(NUMBER, (int) lexer.getTokenStart(), (int) lexer.getTokenEnd());
+                        tokens.advance();
+                        break;
+                    case TRUE:
+                        index.add(TRUE, 0, 0);
+                        tokens.advance();
+                        break;
+                    case FALSE:
+                        index.add(FALSE, 0, 0);
+                        tokens.advance();
+                        break;
+                    case NULL:
+                        index.add(NULL, 0, 0);
+                        tokens.advance();
+                        break;
+                    default:
+                        throw error("Unexpected token: " + type);
+                }
+
+                // a value is complete: count it, then close containers or move to the next child
+                while (true) {
+                    if (depth == 0) {
+                        expect(TokenType.EOF);
+                        return;
+                    }
+                    int container = open[depth - 1];
+                    index.a[container]++;
+
+                    if (tokens.type() == TokenType.COMMA) {
+                        tokens.advance();
+                        if (index.kinds[container] == OBJECT) readKey();
+                        break;
+                    }
+                    expect(index.kinds[container] == OBJECT ? TokenType.RIGHT_BRACE : TokenType.RIGHT_BRACKET);
+                    close();
+                }
+            }
+        }
+
+        private void readKey() {
+            TokenType type = tokens.type();
+            if (type != TokenType.STRING) {
+                throw error("Expected STRING but got " + type);
+            }
+            index.add(KEY, (int) lexer.getTokenStart() + 1, (int) lexer.getTokenEnd() - 1);
+            tokens.advance();
+            expect(TokenType.COLON);
+        }
+
+        private void push(int entry) {
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = entry;
+        }
+
+        // The innermost container ends here: its subtree runs up to the current tape size.
+        private void close() {
+            index.b[open[--depth]] = index.size;
+        }
+
+        private void expect(TokenType type) {
+            TokenType actual = tokens.type();
+            if (actual != type) {
+                throw error("Expected " + type + " but got " + actual);
+            }
+            tokens.advance();
+        }
+
+        private ParserException error(String message) {
+            return ParserException.at(message, tokens.line(), tokens.column(), source);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package jsonparser.lazy;
+
+import jsonparser.parser.*;
+
+import java.util.List;
+
+// A JsonArray whose elements are decoded from a JsonIndex the first time it is used.
+// size() is answered from the index without decoding anything.
+public class LazyJsonArray extends JsonArray {
+    private JsonIndex index;  // null once materialized
+    private final int entry;
+
+    LazyJsonArray(JsonIndex index, int entry) {
+        this.index = index;
+        this.entry = entry;
+    }
+
+    public boolean isMaterialized() {
+        return index == null;
+    }
+
+    private void materialize() {
+        if (index == null) return;
+        JsonIndex source = index;
+        index = null;
+        source.fill(this, entry);
+    }
+
+    @Override
+    public void add(JsonValue v) {
+        materialize();
+        super.add(v);
+    }
+
+    @Override
+    public int size() {
+        return index != null ? index.childCount(entry) : super.size();
+    }
+
+    @Override
+    public JsonValue get(int i) {
+        materialize();
+        return super.get(i);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        materialize();
+        return super.getDouble(i);
+    }
+
+    @Override
+    public long getLong(int i) {
+        materialize();
+        return super.getLong(i);
+    }
+
+    @Override
+    public boolean getBoolean(int i) {
+        materialize();
+        return super.getBoolean(i);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        materialize();
+        return super.toDoubleArray();
+    }
+
+    @Override
+    public long[] toLongArray() {
+        materialize();
+        return super.toLongArray();
+    }
+
+    @Override
+    public boolean hasLongStorage() {
+        materialize();
+        return super.hasLongStorage();
+    }
+
+    @Override
+    public boolean hasDoubleStorage() {
+        materialize();
+        return super.hasDoubleStorage();
+    }
+
+    @Override
+    public boolean hasBooleanStorage() {
+        materialize();
+        return super.hasBooleanStorage();
+    }
+
+    @Override
+    public boolean isInteger(int i) {
+        materialize();
+        return super.isInteger(i);
+    }
+
+    @Override
+    public List<JsonValue> getValues() {
+        materialize();
+        return super.getValues();
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
+}
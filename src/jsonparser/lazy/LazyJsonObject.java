@@ -0,0 +1,70 @@
+package jsonparser.lazy;
+
+import jsonparser.parser.*;
+
+import java.util.Map;
+
+// A JsonObject whose members are decoded from a JsonIndex the first time it is used.
+public class LazyJsonObject extends JsonObject {
+    private JsonIndex index;  // null once materialized
+    private final int entry;
+
+    LazyJsonObject(JsonIndex index, int entry) {
+        this.index = index;
+        this.entry = entry;
+    }
+
+    public boolean isMaterialized() {
+        return index == null;
+    }
+
+    private void materialize() {
+        if (index == null) return;
+        JsonIndex source = index;
+        index = null;
+        source.fill(this, entry);
+    }
+
+    @Override
+    public void put(String key, JsonValue value) {
+        materialize();
+        super.put(key, value);
+    }
+
+    @Override
+    public JsonValue get(String key) {
+        materialize();
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        materialize();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public JsonValue remove(String key) {
+        materialize();
+        return super.remove(key);
+    }
+
+    // Not answered from the index: duplicate keys only collapse when the members are decoded.
+    @Override
+    public int size() {
+        materialize();
+        return super.size();
+    }
+
+    @Override
+    public Map<String, JsonValue> getMap() {
+        materialize();
+        return super.getMap();
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
+}
@@ -0,0 +1,536 @@
+package jsonparser.lazy;
+
+import jsonparser.parser.*;
+import jsonparser.util.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// A parsed document stored as one flat tape in a direct (off-heap) ByteBuffer, so a large
+// document costs the garbage collector a single object instead of one per node.
+//
+// Nodes are addressed by int handles (their byte offset in the tape) and read through this
+// class, so walking the document allocates nothing; only getString(), key() and toJsonValue()
+// create objects, on request. Tape layout, one node after the other in document order:
+//
+//   OBJECT / ARRAY  tag, int child count, int offset past the subtree, children..., END
+//   KEY / STRING    tag, int byte length, UTF-8 bytes (object members are a KEY then the value)
+//   LONG / DOUBLE   tag, 8-byte value
+//   BIG_NUMBER      tag, int length, the number's ASCII text (anything not a LONG or DOUBLE)
+//   TRUE / FALSE / NULL / END   tag only
+//
+// A DOUBLE reads back with its shortest digits, so only numbers already written that way are
+// stored as one (see JsonNumber.isShortestDouble()); 1.50 or 1e5 stay text and keep their
+// spelling. Lone surrogates in strings are stored as 3-byte sequences, so every string comes
+// back unchanged.
+//
+// close() ends the document's lifetime: handles must not be used afterwards. The JDK this
+// builds on has no public call that frees a direct buffer on the spot, so the memory itself
+// is returned when the buffer object is collected.
+//
+//   try (OffHeapDocument doc = OffHeapDocument.parse(json)) {
+//       int user = doc.member(doc.root(), "user");
+//       long id = doc.getLong(doc.member(user, "id"));
+//   }
+public class OffHeapDocument implements AutoCloseable {
+    // Node types returned by type().
+    public static final byte OBJECT = 1;
+    public static final byte ARRAY = 2;
+    public static final byte STRING = 3;
+    public static final byte NUMBER = 4;
+    public static final byte TRUE = 5;
+    public static final byte FALSE = 6;
+    public static final byte NULL = 7;
+
+    // Tags on the tape.
+    private static final byte T_OBJECT = 1;
+    private static final byte T_ARRAY = 2;
+    private static final byte T_STRING = 3;
+    private static final byte T_LONG = 4;
+    private static final byte T_DOUBLE = 5;
+    private static final byte T_BIG_NUMBER = 6;
+    private static final byte T_TRUE = 7;
+    private static final byte T_FALSE = 8;
+    private static final byte T_NULL = 9;
+    private static final byte T_KEY = 10;
+    private static final byte T_END = 11;
+
+    private ByteBuffer tape;  // null once closed
+    private final int length;
+
+    private OffHeapDocument(ByteBuffer tape, int length) {
+        this.tape = tape;
+        this.length = length;
+    }
+
+    // Validates the document (same grammar and errors as the Parser) and copies it onto the tape.
+    public static OffHeapDocument parse(String json) {
+        return new TapeWriter(JsonIndex.build(json)).write();
+    }
+
+    public int root() {
+        buffer();
+        return 0;
+    }
+
+    // Bytes used on the tape.
+    public int sizeInBytes() {
+        return length;
+    }
+
+    @Override
+    public void close() {
+        tape = null;
+    }
+
+    // ---------- NAVIGATION ----------
+    public byte type(int node) {
+        switch (tag(node)) {
+            case T_OBJECT: return OBJECT;
+            case T_ARRAY: return ARRAY;
+            case T_STRING: return STRING;
+            case T_LONG: case T_DOUBLE: case T_BIG_NUMBER: return NUMBER;
+            case T_TRUE: return TRUE;
+            case T_FALSE: return FALSE;
+            case T_NULL: return NULL;
+            default: throw new IllegalArgumentException("Not a value: " + node);
+        }
+    }
+
+    // Number of members or elements of a container.
+    public int size(int container) {
+        checkContainer(container);
+        return buffer().getInt(container + 1);
+    }
+
+    // First element of an array or first member of an object, or -1 if it is empty.
+    public int first(int container) {
+        checkContainer(container);
+        int child = container + 9;
+        return tag(child) == T_END ? -1 : child;
+    }
+
+    // Element or member following the given one, or -1 after the last.
+    public int next(int child) {
+        int after = tag(child) == T_KEY ? skip(skip(child)) : skip(child);
+        return tag(after) == T_END ? -1 : after;
+    }
+
+    // i-th element of an array, or -1 if out of range; walks the elements before it.
+    public int element(int array, int i) {
+        if (tag(array) != T_ARRAY) {
+            throw new IllegalStateException("Not an array: " + array);
+        }
+        if (i < 0) return -1;
+        int child = first(array);
+        while (child >= 0 && i-- > 0) {
+            child = next(child);
+        }
+        return child;
+    }
+
+    // Value of the object's member with the given key, or -1; keys are compared without decoding.
+    public int member(int object, String key) {
+        if (tag(object) != T_OBJECT) {
+            throw new IllegalStateException("Not an object: " + object);
+        }
+        for (int m = first(object); m >= 0; m = next(m)) {
+            if (textEquals(m, key)) return value(m);
+        }
+        return -1;
+    }
+
+    // Value of a member (as returned by first() / next() on an object).
+    public int value(int member) {
+        checkTag(member, T_KEY, "Not an object member");
+        return skip(member);
+    }
+
+    public String key(int member) {
+        checkTag(member, T_KEY, "Not an object member");
+        return text(member);
+    }
+
+    public boolean keyEquals(int member, String key) {
+        checkTag(member, T_KEY, "Not an object member");
+        return textEquals(member, key);
+    }
+
+    // ---------- VALUES ----------
+    public String getString(int node) {
+        checkTag(node, T_STRING, "Not a string");
+        return text(node);
+    }
+
+    public boolean stringEquals(int node, String s) {
+        return tag(node) == T_STRING && textEquals(node, s);
+    }
+
+    // Exact long value; throws ArithmeticException if the number has a fraction or does not fit.
+    public long getLong(int node) {
+        switch (tag(node)) {
+            case T_LONG:
+                return buffer().getLong(node + 1);
+            case T_DOUBLE:
+                double d = buffer().getDouble(node + 1);
+                if (d != Math.rint(d) || Math.abs(d) >= 0x1p63) {
+                    throw new ArithmeticException("Not a long: " + d);
+                }
+                return (long) d;
+            case T_BIG_NUMBER:
+                return number(node).asLong();
+            default:
+                throw new IllegalStateException("Not a number: " + node);
+        }
+    }
+
+    public double getDouble(int node) {
+        switch (tag(node)) {
+            case T_LONG: return buffer().getLong(node + 1);
+            case T_DOUBLE: return buffer().getDouble(node + 1);
+            case T_BIG_NUMBER: return number(node).asDouble();
+            default: throw new IllegalStateException("Not a number: " + node);
+        }
+    }
+
+    public boolean getBoolean(int node) {
+        byte tag = tag(node);
+        if (tag != T_TRUE && tag != T_FALSE) {
+            throw new IllegalStateException("Not a boolean: " + node);
+        }
+        return tag == T_TRUE;
+    }
+
+    public boolean isNull(int node) {
+        return tag(node) == T_NULL;
+    }
+
+    // Copies the subtree onto the heap as an ordinary JsonValue tree. Iterative, so any depth the
+    // Parser accepts can be copied: each open container is a frame holding the heap copy and the
+    // next child node still to visit (-1 once done).
+    public JsonValue toJsonValue(int node) {
+        JsonValue[] open = new JsonValue[16];
+        int[] pending = new int[16];
+        int top = 0;
+        JsonValue root = null;
+        String key = null;
+
+        while (true) {
+            byte tag = tag(node);
+            JsonValue value = tag == T_OBJECT ? new JsonObject()
+                    : tag == T_ARRAY ? new JsonArray()
+                    : scalar(node, tag);
+            if (top == 0) {
+                root = value;
+            } else if (key != null) {
+                ((JsonObject) open[top - 1]).put(key, value);
+            } else {
+                ((JsonArray) open[top - 1]).add(value);
+            }
+            if (tag == T_OBJECT || tag == T_ARRAY) {
+                if (top == open.length) {
+                    open = Arrays.copyOf(open, top * 2);
+                    pending = Arrays.copyOf(pending, top * 2);
+                }
+                open[top] = value;
+                pending[top++] = first(node);
+            }
+
+            // move to the next member or element, dropping the containers that are done
+            while (top > 0 && pending[top - 1] < 0) {
+                open[--top] = null;
+            }
+            if (top == 0) return root;
+            int child = pending[top - 1];
+            pending[top - 1] = next(child);
+            if (open[top - 1] instanceof JsonObject) {
+                key = text(child);
+                node = skip(child);
+            } else {
+                key = null;
+                node = child;
+            }
+        }
+    }
+
+    private JsonValue scalar(int node, byte tag) {
+        switch (tag) {
+            case T_STRING: return new JsonPrimitive(text(node));
+            case T_LONG: return new JsonPrimitive(JsonNumber.of(buffer().getLong(node + 1)));
+            case T_DOUBLE: return new JsonPrimitive(JsonNumber.of(buffer().getDouble(node + 1)));
+            case T_BIG_NUMBER: return new JsonPrimitive(number(node));
+            case T_TRUE: return new JsonPrimitive(true);
+            case T_FALSE: return new JsonPrimitive(false);
+            case T_NULL: return new JsonPrimitive(null);
+            default: throw new IllegalArgumentException("Not a value: " + node);
+        }
+    }
+
+    // ---------- TAPE ACCESS ----------
+    private ByteBuffer buffer() {
+        if (tape == null) {
+            throw new IllegalStateException("Document is closed");
+        }
+        return tape;
+    }
+
+    private byte tag(int node) {
+        if (node < 0 || node >= length) {
+            throw new IllegalArgumentException("Not a node: " + node);
+        }
+        return buffer().get(node);
+    }
+
+    private void checkTag(int node, byte tag, String message) {
+        if (tag(node) != tag) {
+            throw new IllegalStateException(message + ": " + node);
+        }
+    }
+
+    private void checkContainer(int node) {
+        byte tag = tag(node);
+        if (tag != T_OBJECT && tag != T_ARRAY) {
+            throw new IllegalStateException("Not a container: " + node);
+        }
+    }
+
+    // Offset just past the node (for a KEY, just past the key itself).
+    private int skip(int node) {
+        ByteBuffer t = buffer();
+        switch (t.get(node)) {
+            case T_OBJECT: case T_ARRAY: return t.getInt(node + 5);
+            case T_STRING: case T_KEY: case T_BIG_NUMBER: return node + 5 + t.getInt(node + 1);
+            case T_LONG: case T_DOUBLE: return node + 9;
+            default: return node + 1;
+        }
+    }
+
+    private JsonNumber number(int node) {
+        return JsonNumber.parse(text(node));
+    }
+
+    // Decodes the UTF-8 of a KEY, STRING or BIG_NUMBER node.
+    private String text(int node) {
+        ByteBuffer t = buffer();
+        int end = node + 5 + t.getInt(node + 1);
+        StringBuilder sb = new StringBuilder(end - node - 5);
+        for (int p = node + 5; p < end; ) {
+            int b = t.get(p) & 0xFF;
+            if (b < 0x80) {
+                sb.append((char) b);
+                p++;
+            } else if (b < 0xE0) {
+                sb.append((char) ((b & 0x1F) << 6 | (t.get(p + 1) & 0x3F)));
+                p += 2;
+            } else if (b < 0xF0) {
+                sb.append((char) ((b & 0x0F) << 12 | (t.get(p + 1) & 0x3F) << 6 | (t.get(p + 2) & 0x3F)));
+                p += 3;
+            } else {
+                sb.appendCodePoint((b & 0x07) << 18 | (t.get(p + 1) & 0x3F) << 12
+                        | (t.get(p + 2) & 0x3F) << 6 | (t.get(p + 3) & 0x3F));
+                p += 4;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Compares the node's text with s char by char, decoding as it goes.
+    private boolean textEquals(int node, String s) {
+        ByteBuffer t = buffer();
+        int end = node + 5 + t.getInt(node + 1);
+        int i = 0;
+        int n = s.length();
+        for (int p = node + 5; p < end; ) {
+            int b = t.get(p) & 0xFF;
+            if (b < 0x80) {
+                if (i >= n || s.charAt(i++) != b) return false;
+                p++;
+            } else if (b < 0xE0) {
+                if (i >= n || s.charAt(i++) != ((b & 0x1F) << 6 | (t.get(p + 1) & 0x3F))) return false;
+                p += 2;
+            } else if (b < 0xF0) {
+                if (i >= n || s.charAt(i++) != ((b & 0x0F) << 12 | (t.get(p + 1) & 0x3F) << 6 | (t.get(p + 2) & 0x3F))) {
+                    return false;
+                }
+                p += 3;
+            } else {
+                int cp = (b & 0x07) << 18 | (t.get(p + 1) & 0x3F) << 12 | (t.get(p + 2) & 0x3F) << 6 | (t.get(p + 3) & 0x3F);
+                if (i + 1 >= n || s.charAt(i) != Character.highSurrogate(cp) || s.charAt(i + 1) != Character.lowSurrogate(cp)) {
+                    return false;
+                }
+                i += 2;
+                p += 4;
+            }
+        }
+        return i == n;
+    }
+
+    // ---------- WRITING ----------
+    // Copies a JsonIndex onto the tape in one pass; strings are encoded straight from the
+    // source text, escapes included, without building Strings.
+    private static class TapeWriter {
+        private final JsonIndex index;
+        private final String source;
+        private ByteBuffer out;
+
+        TapeWriter(JsonIndex index) {
+            this.index = index;
+            this.source = index.getSource();
+            this.out = ByteBuffer.allocateDirect(Math.max(64, source.length() + source.length() / 2))
+                    .order(ByteOrder.nativeOrder());
+        }
+
+        OffHeapDocument write() {
+            int[] ends = new int[32];     // tape entry where each open container ends
+            int[] headers = new int[32];  // tape offset of its header
+            int depth = 0;
+
+            for (int i = 0; i < index.size(); i++) {
+                while (depth > 0 && ends[depth - 1] == i) {
+                    closeContainer(headers[--depth]);
+                }
+                byte kind = index.kind(i);
+                switch (kind) {
+                    case JsonIndex.OBJECT:
+                    case JsonIndex.ARRAY:
+                        if (depth == ends.length) {
+                            ends = Arrays.copyOf(ends, depth * 2);
+                            headers = Arrays.copyOf(headers, depth * 2);
+                        }
+                        ends[depth] = index.second(i);
+                        headers[depth++] = out.position();
+                        ensure(9);
+                        out.put(kind == JsonIndex.OBJECT ? T_OBJECT : T_ARRAY);
+                        out.putInt(index.first(i));
+                        out.putInt(0);  // patched when the container ends
+                        break;
+                    case JsonIndex.KEY:
+                        putText(T_KEY, index.first(i), index.second(i));
+                        break;
+                    case JsonIndex.STRING:
+                        putText(T_STRING, index.first(i), index.second(i));
+                        break;
+                    case JsonIndex.NUMBER:
+                        putNumber(index.first(i), index.second(i));
+                        break;
+                    default:
+                        ensure(1);
+                        out.put(kind == JsonIndex.TRUE ? T_TRUE : kind == JsonIndex.FALSE ? T_FALSE : T_NULL);
+                }
+            }
+            while (depth > 0) {
+                closeContainer(headers[--depth]);
+            }
+            return new OffHeapDocument(out, out.position());
+        }
+
+        private void closeContainer(int header) {
+            ensure(1);
+            out.put(T_END);
+            out.putInt(header + 5, out.position());
+        }
+
+        private void putNumber(int from, int to) {
+            ensure(9);
+            long value = 0;
+            boolean negative = source.charAt(from) == '-';
+            int i = negative ? from + 1 : from;
+            for (; i < to; i++) {
+                int d = source.charAt(i) - '0';
+                if (d < 0 || d > 9 || !JsonNumber.canAppendDigit(value, d)) break;
+                value = value * 10 + d;
+            }
+            if (i == to && !(negative && value == 0)) {
+                out.put(T_LONG);
+                out.putLong(negative ? -value : value);
+                return;
+            }
+            JsonNumber number = JsonNumber.parse(source, from, to);
+            if (number.isShortestDouble()) {
+                out.put(T_DOUBLE);
+                out.putDouble(number.asDouble());
+                return;
+            }
+            ensure(5 + to - from);
+            out.put(T_BIG_NUMBER);
+            out.putInt(to - from);
+            for (int k = from; k < to; k++) {
+                out.put((byte) source.charAt(k));
+            }
+        }
+
+        // Tag, length and UTF-8 of the source text in [from, to), with escapes decoded.
+        private void putText(byte tag, int from, int to) {
+            ensure(5 + 4 * (to - from));  // a char never takes more than 4 bytes (or 3 per UTF-16 unit)
+            int start = out.position();
+            out.put(tag);
+            out.putInt(0);
+            for (int i = from; i < to; ) {
+                char c = source.charAt(i++);
+                if (c == '\\') {
+                    char e = source.charAt(i++);
+                    switch (e) {
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case 'n': c = '\n'; break;
+                        case 'r': c = '\r'; break;
+                        case 't': c = '\t'; break;
+                        case 'u': c = hex(i); i += 4; break;
+                        default: c = e;  // '"', '\\' and '/'
+                    }
+                }
+                if (Character.isHighSurrogate(c) && i < to) {
+                    int save = i;
+                    char low = source.charAt(i++);
+                    if (low == '\\' && i < to && source.charAt(i) == 'u') {
+                        low = hex(i + 1);
+                        i += 5;
+                    }
+                    if (Character.isLowSurrogate(low)) {
+                        int cp = Character.toCodePoint(c, low);
+                        out.put((byte) (0xF0 | (cp >> 18)));
+                        out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                        out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                        out.put((byte) (0x80 | (cp & 0x3F)));
+                        continue;
+                    }
+                    i = save;
+                }
+                putChar(c);
+            }
+            out.putInt(start + 1, out.position() - start - 5);
+        }
+
+        private void putChar(char c) {
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+
+        private char hex(int i) {
+            return (char) (JsonStrings.hexValue(source.charAt(i)) << 12 | JsonStrings.hexValue(source.charAt(i + 1)) << 8
+                    | JsonStrings.hexValue(source.charAt(i + 2)) << 4 | JsonStrings.hexValue(source.charAt(i + 3)));
+        }
+
+        // Grows the tape (a new direct buffer) when fewer than n bytes are left.
+        private void ensure(int n) {
+            if (out.remaining() >= n) return;
+            long capacity = Math.max((long) out.capacity() * 2, (long) out.position() + n);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Document too large for an off-heap tape");
+            }
+            ByteBuffer bigger = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+    }
+}
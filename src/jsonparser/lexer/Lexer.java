@@ -1,207 +1,481 @@
 package jsonparser.lexer;
 
 import jsonparser.util.*;
+import java.io.*;
 import java.util.*;
 
-public class Lexer {
+public class Lexer implements TokenSource {
     private final CharReader reader;
 
+    private long tokenStart;          // offset of the first char of the last token
+    private long tokenEnd;            // offset just past the last token, when the lexer looked beyond it
+    private String text;              // text of the last token (only set when materialized)
+    private JsonNumber number;        // value of the last NUMBER token (only set when materialized)
+    private boolean escaped;          // last STRING token text still holds escape sequences
+    private final char[] hex = new char[4];
+    private SymbolTable keyTable;
+    private char[] literal = new char[8];
+    private long maxLength = Long.MAX_VALUE;
+
     public Lexer(String input) {
-        this.reader = new CharReader(input);
+        this(new CharReader(input));
+    }
+
+    // Lexes a character stream through a fixed-size buffer; the caller stays responsible for closing it.
+    public Lexer(Reader input) {
+        this(new CharReader(input));
+    }
+
+    // Lexes a UTF-8 encoded byte stream.
+    public Lexer(InputStream input) {
+        this(new CharReader(input));
+    }
+
+    public Lexer(CharReader reader) {
+        this.reader = reader;
+    }
+
+    // Starts over on input[from, to), reusing the lexer's buffers and key table. Offsets count
+    // from the start of input; the line starting at 'from' is numbered firstLine.
+    // Only for lexers over in-memory input.
+    public void reset(String input, int from, int to, int firstLine) {
+        reader.reset(input, from, to, firstLine);
+        tokenStart = from;
+        tokenEnd = -1;
+        text = null;
+        number = null;
+        escaped = false;
+    }
+
+    // Object keys (strings directly followed by ':') are canonicalized through this table,
+    // so repeated keys are shared instead of allocated again. Null turns interning off.
+    public void setKeyTable(SymbolTable keyTable) {
+        this.keyTable = keyTable;
+    }
+
+    public SymbolTable getKeyTable() {
+        return keyTable;
     }
 
+    @Override
     public Token nextToken() {
-        skipWhitespace();
+        TokenType type = next();
+        long end = getTokenEnd();
+        if (type == TokenType.NUMBER) {
+            return new Token(number, end, reader.getLineIndex());
+        }
+        if (type == TokenType.STRING && escaped) {
+            return new Token(text, true, end, reader.getLineIndex());
+        }
+        return new Token(type, text, end, reader.getLineIndex());
+    }
+
+    // Moves past the next token and validates it, but does not build its text or a Token.
+    // The token spans getTokenStart() .. getTokenEnd().
+    public TokenType scan() {
+        return read(false);
+    }
+
+    // Moves past the next token and keeps its value in the lexer (see getText() and getNumber())
+    // instead of wrapping it in a Token.
+    public TokenType next() {
+        return read(true);
+    }
+
+    // Text of the last token read by next(): decoded for strings, null for EOF.
+    public String getText() {
+        return escaped ? JsonStrings.unescape(text, 0, text.length()) : text;
+    }
+
+    // Value of the last NUMBER token read by next().
+    public JsonNumber getNumber() {
+        return number;
+    }
+
+    public long getTokenStart() {
+        return tokenStart;
+    }
+
+    // Offset just past the last token.
+    public long getTokenEnd() {
+        return tokenEnd >= 0 ? tokenEnd : reader.getOffset();
+    }
+
+    // Current read offset (may already be past whitespace that follows the last token).
+    public long getOffset() {
+        return reader.getOffset();
+    }
+
+    public LineIndex getLineIndex() {
+        return reader.getLineIndex();
+    }
+
+    // See CharReader.setKeepLineHistory; Tokens taken earlier may then lose their line numbers.
+    // Off keeps memory flat however long a streamed input is.
+    public Lexer setKeepLineHistory(boolean keepLineHistory) {
+        reader.setKeepLineHistory(keepLineHistory);
+        return this;
+    }
+
+    // Input longer than this many chars fails as soon as the reader gets past the limit, with
+    // "Document exceeds maximum size of N" at that point: a long token is never buffered whole.
+    public void setMaxLength(long maxLength) {
+        this.maxLength = maxLength;
+        reader.setMaxLength(maxLength);
+    }
+
+    // True once the input was found to be longer than the max length.
+    public boolean exceedsMaxLength() {
+        return reader.isTruncated();
+    }
+
+    private TokenType read(boolean materialize) {
+        startToken();
 
         if (!reader.hasNext()) {
-            Position pos = reader.getPosition();
-            return new Token(TokenType.EOF, null, pos.getLine(), pos.getColumn());
+            if (reader.isTruncated()) {
+                throw error("Unexpected end of input");
+            }
+            return TokenType.EOF;
         }
 
         char c = reader.peek();
-        Position pos = reader.getPosition();
 
         switch (c) {
             case '{':
                 reader.advance();
-                return new Token(TokenType.LEFT_BRACE, "{", pos.getLine(), pos.getColumn());
+                text = "{";
+                return TokenType.LEFT_BRACE;
             case '}':
                 reader.advance();
-                return new Token(TokenType.RIGHT_BRACE, "}", pos.getLine(), pos.getColumn());
+                text = "}";
+                return TokenType.RIGHT_BRACE;
             case '[':
                 reader.advance();
-                return new Token(TokenType.LEFT_BRACKET, "[", pos.getLine(), pos.getColumn());
+                text = "[";
+                return TokenType.LEFT_BRACKET;
             case ']':
                 reader.advance();
-                return new Token(TokenType.RIGHT_BRACKET, "]", pos.getLine(), pos.getColumn());
+                text = "]";
+                return TokenType.RIGHT_BRACKET;
             case ',':
                 reader.advance();
-                return new Token(TokenType.COMMA, ",", pos.getLine(), pos.getColumn());
+                text = ",";
+                return TokenType.COMMA;
             case ':':
                 reader.advance();
-                return new Token(TokenType.COLON, ":", pos.getLine(), pos.getColumn());
+                text = ":";
+                return TokenType.COLON;
             case '"':
-                return stringToken();
+                return stringToken(materialize);
             default:
                 if (isDigit(c) || c == '-') {
-                    return numberToken();
+                    return numberToken(materialize);
                 }
                 if (isAlpha(c)) {
                     return literalToken();
                 }
         }
 
-        throw new LexerException(
-                "Unexpected character: '" + c + "'",
-                pos.getLine(),
-                pos.getColumn()
-        );
+        throw error("Unexpected character: '" + c + "'");
     }
 
-    private void skipWhitespace() {
-        while (reader.hasNext()) {
-            char c = reader.peek();
-            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+    private void startToken() {
+        skipWhitespace();
+        tokenStart = reader.getOffset();
+        tokenEnd = -1;
+        text = null;
+        number = null;
+        escaped = false;
+    }
+
+    // ---------- SKIPPING ----------
+    // Moves past the next value by looking only at quotes and brackets: nothing is materialized,
+    // and the skipped text is not validated beyond finding where the value ends.
+    public void skipValue() {
+        startToken();
+        if (!reader.hasNext()) {
+            throw error("Unexpected end of input");
+        }
+
+        char c = reader.peek();
+        switch (c) {
+            case '{': case '[':
+                reader.advance();
+                skipContainer();
+                break;
+            case '"':
                 reader.advance();
-            } else break;
+                skipString();
+                break;
+            case '}': case ']': case ',': case ':':
+                throw error("Unexpected character: '" + c + "'");
+            default: // number or literal: runs up to the next delimiter
+                while (reader.hasNext() && !isDelimiter(reader.peek())) {
+                    reader.advance();
+                }
         }
     }
 
-    private Token stringToken() {
-        Position pos = reader.getPosition();
-        reader.advance(); // skip opening quote
+    // Moves past the rest of a container whose opening bracket has already been read.
+    public void skipContainer() {
+        int depth = 1;
+        while (depth > 0) {
+            char c = reader.skipToQuoteOrBracket();
+            if (!reader.hasNext()) {
+                throw error("Unterminated container");
+            }
+            reader.advance();
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else {
+                depth--;
+            }
+        }
+    }
 
-        StringBuilder sb = new StringBuilder();
+    // Skips past the closing quote of a string whose opening quote has already been read.
+    private void skipString() {
+        while (true) {
+            char c = reader.skipToQuoteOrBackslash();
+            if (!reader.hasNext()) {
+                throw error("Unterminated string");
+            }
+            reader.advance();
+            if (c == '"') return;
+            reader.advance(); // the escaped char can't end the string
+        }
+    }
 
-        while (reader.hasNext()) {
-            char c = reader.advance();
+    private boolean isDelimiter(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ':'
+                || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
 
-            if (c == '"') {
-                return new Token(TokenType.STRING, sb.toString(), pos.getLine(), pos.getColumn());
-            }
+    private void skipWhitespace() {
+        reader.skipWhitespace();
+    }
 
-            if (c == '\\') {  // handle escape sequences
-                if (!reader.hasNext()) {
-                    throw new LexerException("Invalid escape sequence", pos.getLine(), pos.getColumn());
+    // Plain runs are skipped in bulk up to the next quote or backslash; escapes are only
+    // validated here. The token text is the raw slice between the quotes, decoded later
+    // (and only if it contains escapes) when the value is actually read.
+    private TokenType stringToken(boolean materialize) {
+        reader.advance(); // skip opening quote
+        reader.mark();
+        try {
+            boolean escapes = false;
+
+            while (reader.hasNext()) {
+                char c = reader.skipToQuoteOrBackslash();
+
+                if (c == '"') {
+                    if (materialize && keyTable != null && !escapes) {
+                        return keyOrString();
+                    }
+                    if (materialize) {
+                        text = reader.sliceFromMark();
+                        escaped = escapes;
+                    }
+                    reader.advance();
+                    return TokenType.STRING;
                 }
-                char escaped = reader.advance();
-                switch (escaped) {
-                    case '"': sb.append('"'); break;
-                    case '\\': sb.append('\\'); break;
-                    case '/': sb.append('/'); break;
-                    case 'b': sb.append('\b'); break;
-                    case 'f': sb.append('\f'); break;
-                    case 'n': sb.append('\n'); break;
-                    case 'r': sb.append('\r'); break;
-                    case 't': sb.append('\t'); break;
-                    case 'u':
-                        sb.append(parseUnicodeEscape(pos));
-                        break;
-                    default:
-                        throw new LexerException(
-                                "Invalid escape sequence: \\" + escaped,
-                                pos.getLine(),
-                                pos.getColumn()
-                        );
+
+                if (c == '\\') {  // validate escape sequences
+                    escapes = true;
+                    reader.advance();
+                    if (!reader.hasNext()) {
+                        throw error("Invalid escape sequence");
+                    }
+                    char escapedChar = reader.advance();
+                    switch (escapedChar) {
+                        case '"': case '\\': case '/':
+                        case 'b': case 'f': case 'n': case 'r': case 't':
+                            break;
+                        case 'u':
+                            checkUnicodeEscape();
+                            break;
+                        default:
+                            throw error("Invalid escape sequence: \\" + escapedChar);
+                    }
                 }
-            } else {
-                sb.append(c);
             }
+
+            throw error("Unterminated string");
+        } finally {
+            reader.unmark();
         }
+    }
+
+    // At the closing quote of an escape-free string: looks past it for a ':' and, if this
+    // is an object key, takes the text from the key table instead of slicing a new String.
+    private TokenType keyOrString() {
+        long quote = reader.getOffset();
+        reader.advance();
+        tokenEnd = quote + 1;
+        skipWhitespace();
 
-        throw new LexerException(
-                "Unterminated string",
-                pos.getLine(),
-                pos.getColumn()
-        );
+        if (reader.peek() == ':') {
+            text = reader.internFromMark(quote, keyTable);
+        } else {
+            text = reader.sliceFromMark(quote);
+        }
+        return TokenType.STRING;
     }
 
-    private char parseUnicodeEscape(Position pos) {
-        StringBuilder hex = new StringBuilder();
+    private void checkUnicodeEscape() {
+        boolean valid = true;
         for (int i = 0; i < 4; i++) {
             if (!reader.hasNext()) {
-                throw new LexerException("Incomplete unicode escape", pos.getLine(), pos.getColumn());
+                throw error("Incomplete unicode escape");
             }
-            hex.append(reader.advance());
+            hex[i] = reader.advance();
+            if (JsonStrings.hexValue(hex[i]) < 0) valid = false;
         }
 
-        try {
-            return (char) Integer.parseInt(hex.toString(), 16);
-        } catch (Exception e) {
-            throw new LexerException("Invalid unicode escape: \\u" + hex, pos.getLine(), pos.getColumn());
+        if (!valid) {
+            throw error("Invalid unicode escape: \\u" + new String(hex));
         }
     }
 
-    private Token numberToken() {
-        Position pos = reader.getPosition();
-        StringBuilder sb = new StringBuilder();
+    // Digits are validated and accumulated into a long as they are read. Only numbers that are
+    // not plain longs keep their text, which is sliced from the reader in one piece.
+    private TokenType numberToken(boolean materialize) {
+        reader.mark();
+        try {
+            boolean negative = false;
+            long significand = 0;
+            int exponent = 0;
+            boolean exact = true;
+            boolean integer = true;
 
-        char c = reader.peek();
-        if (c == '-') {
-            sb.append(reader.advance());
-        }
+            char c = reader.peek();
+            if (c == '-') {
+                negative = true;
+                reader.advance();
+            }
 
-        if (!reader.hasNext())
-            throw new LexerException("Invalid number", pos.getLine(), pos.getColumn());
+            if (!reader.hasNext())
+                throw error("Invalid number");
 
-        c = reader.peek();
-        if (!isDigit(c))
-            throw new LexerException("Invalid number start", pos.getLine(), pos.getColumn());
+            c = reader.peek();
+            if (!isDigit(c))
+                throw error("Invalid number start");
 
-        if (c == '0') {
-            sb.append(reader.advance());
-            if (reader.hasNext() && isDigit(reader.peek())) {
-                throw new LexerException("Leading zeros not allowed", pos.getLine(), pos.getColumn());
+            if (c == '0') {
+                reader.advance();
+                if (reader.hasNext() && isDigit(reader.peek())) {
+                    throw error("Leading zeros not allowed");
+                }
+            } else if (!materialize) {
+                reader.skipDigits();
+            } else {
+                while (reader.hasNext() && isDigit(reader.peek())) {
+                    int d = reader.advance() - '0';
+                    if (JsonNumber.canAppendDigit(significand, d)) {
+                        significand = significand * 10 + d;
+                    } else {
+                        exact = false;
+                        exponent++;
+                    }
+                }
             }
-        } else {
-            while (reader.hasNext() && isDigit(reader.peek())) {
-                sb.append(reader.advance());
+
+            if (reader.hasNext() && reader.peek() == '.') {
+                integer = false;
+                reader.advance();
+                if (!reader.hasNext() || !isDigit(reader.peek())) {
+                    throw error("Invalid decimal format");
+                }
+                if (!materialize) reader.skipDigits();
+                while (reader.hasNext() && isDigit(reader.peek())) {
+                    int d = reader.advance() - '0';
+                    if (significand == 0 && d == 0) {
+                        exponent--;
+                    } else if (JsonNumber.canAppendDigit(significand, d)) {
+                        significand = significand * 10 + d;
+                        exponent--;
+                    } else {
+                        exact = false;
+                    }
+                }
             }
-        }
 
-        if (reader.hasNext() && reader.peek() == '.') {
-            sb.append(reader.advance());
-            if (!reader.hasNext() || !isDigit(reader.peek())) {
-                throw new LexerException("Invalid decimal format", pos.getLine(), pos.getColumn());
+            if (reader.hasNext() && (reader.peek() == 'e' || reader.peek() == 'E')) {
+                integer = false;
+                reader.advance();
+                boolean negativeExponent = false;
+                if (reader.peek() == '+' || reader.peek() == '-') {
+                    negativeExponent = reader.advance() == '-';
+                }
+                if (!reader.hasNext() || !isDigit(reader.peek())) {
+                    throw error("Invalid exponent");
+                }
+                int value = 0;
+                while (reader.hasNext() && isDigit(reader.peek())) {
+                    value = JsonNumber.addExponentDigit(value, reader.advance() - '0');
+                }
+                if (value == JsonNumber.SATURATED_EXPONENT) {
+                    exact = false;
+                }
+                exponent += negativeExponent ? -value : value;
             }
-            while (reader.hasNext() && isDigit(reader.peek())) {
-                sb.append(reader.advance());
+
+            if (materialize) {
+                if (negative) significand = -significand;
+                if (integer && exact && !(negative && significand == 0)) {
+                    number = JsonNumber.of(significand);
+                } else {
+                    number = JsonNumber.of(reader.sliceFromMark(), significand, exponent, exact);
+                }
             }
+            return TokenType.NUMBER;
+        } finally {
+            reader.unmark();
         }
+    }
 
-        if (reader.hasNext() && (reader.peek() == 'e' || reader.peek() == 'E')) {
-            sb.append(reader.advance());
-            if (reader.peek() == '+' || reader.peek() == '-') {
-                sb.append(reader.advance());
-            }
-            if (!reader.hasNext() || !isDigit(reader.peek())) {
-                throw new LexerException("Invalid exponent", pos.getLine(), pos.getColumn());
-            }
-            while (reader.hasNext() && isDigit(reader.peek())) {
-                sb.append(reader.advance());
+    // The alpha run is collected in a reused buffer, so literals never allocate.
+    private TokenType literalToken() {
+        int len = 0;
+        while (reader.hasNext() && isAlpha(reader.peek())) {
+            if (len == literal.length) {
+                literal = Arrays.copyOf(literal, len * 2);
             }
+            literal[len++] = reader.advance();
         }
 
-        return new Token(TokenType.NUMBER, sb.toString(), pos.getLine(), pos.getColumn());
+        if (isLiteral(len, "true")) {
+            text = "true";
+            return TokenType.TRUE;
+        }
+        if (isLiteral(len, "false")) {
+            text = "false";
+            return TokenType.FALSE;
+        }
+        if (isLiteral(len, "null")) {
+            text = "null";
+            return TokenType.NULL;
+        }
+        throw error("Invalid literal: " + new String(literal, 0, len));
     }
 
-    private Token literalToken() {
-        Position pos = reader.getPosition();
-
-        StringBuilder sb = new StringBuilder();
-        while (reader.hasNext() && isAlpha(reader.peek())) {
-            sb.append(reader.advance());
+    private boolean isLiteral(int len, String expected) {
+        if (len != expected.length()) return false;
+        for (int i = 0; i < len; i++) {
+            if (literal[i] != expected.charAt(i)) return false;
         }
+        return true;
+    }
 
-        String literal = sb.toString();
-
-        return switch (literal) {
-            case "true" -> new Token(TokenType.TRUE, literal, pos.getLine(), pos.getColumn());
-            case "false" -> new Token(TokenType.FALSE, literal, pos.getLine(), pos.getColumn());
-            case "null" -> new Token(TokenType.NULL, literal, pos.getLine(), pos.getColumn());
-            default ->
-                    throw new LexerException("Invalid literal: " + literal, pos.getLine(), pos.getColumn());
-        };
+    // Whatever went wrong where the reader stopped at the length limit, the input is too long.
+    private LexerException error(String message) {
+        if (reader.isTruncated()) {
+            message = "Document exceeds maximum size of " + maxLength;
+        }
+        Position pos = reader.getPosition();
+        return new LexerException(message, pos.getLine(), pos.getColumn());
     }
 
     private boolean isDigit(char c) {
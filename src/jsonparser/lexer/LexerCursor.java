@@ -0,0 +1,87 @@
+package jsonparser.lexer;
+
+import jsonparser.util.JsonNumber;
+
+// TokenCursor straight over a Lexer: the current token lives in the lexer itself, so walking
+// a document allocates no Token objects. A token is only read when it is first looked at,
+// which lets a caller skip the next value instead.
+public class LexerCursor implements TokenCursor {
+    private final Lexer lexer;
+    private TokenType type;   // null until the current token has been read
+    private boolean materialize = true;
+
+    // Only the current token's position is ever looked up, so a cursor over a streamed lexer
+    // that nothing else reads from can let it forget passed lines (Lexer.setKeepLineHistory).
+    public LexerCursor(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    // When off, tokens read from now on are only validated (see Lexer.scan()): value() is
+    // null for strings and number() is null.
+    public void setMaterialize(boolean materialize) {
+        this.materialize = materialize;
+    }
+
+    @Override
+    public TokenType type() {
+        if (type == null) {
+            type = materialize ? lexer.next() : lexer.scan();
+        }
+        return type;
+    }
+
+    @Override
+    public String value() {
+        type();
+        return lexer.getText();
+    }
+
+    @Override
+    public JsonNumber number() {
+        type();
+        return lexer.getNumber();
+    }
+
+    @Override
+    public int line() {
+        return lexer.getLineIndex().lineOf(offset());
+    }
+
+    @Override
+    public int column() {
+        return lexer.getLineIndex().columnOf(offset());
+    }
+
+    @Override
+    public long offset() {
+        type();
+        return lexer.getTokenEnd();
+    }
+
+    @Override
+    public void advance() {
+        type();
+        type = null;
+    }
+
+    // Moves past the current value without materializing it (see Lexer.skipValue()).
+    // If the value's first token has already been read, only the rest of it is skipped.
+    public void skipValue() {
+        if (type == null) {
+            lexer.skipValue();
+        } else if (type == TokenType.LEFT_BRACE || type == TokenType.LEFT_BRACKET) {
+            lexer.skipContainer();
+        }
+        type = null;
+    }
+
+    // Forgets the current token, e.g. after the lexer has been reset.
+    public void reset() {
+        type = null;
+        materialize = true;
+    }
+
+    public Lexer getLexer() {
+        return lexer;
+    }
+}
@@ -10,4 +10,12 @@ public class LexerException extends RuntimeException {
         this.line = line;
         this.column = column;
     }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
 }
@@ -0,0 +1,205 @@
+package jsonparser.lexer;
+
+import java.nio.ByteBuffer;
+
+// Tokenizes UTF-8 input that arrives in chunks, without ever waiting for more: feed() takes
+// whatever bytes are there, and nextToken() returns null while the next token is still
+// incomplete. Only the bytes of the unfinished token are kept between calls.
+//
+// A cheap byte scan decides when the next token is complete (with the byte after it, which
+// tells where a number or literal ends); the token itself is then read by a Utf8Lexer that
+// carries line and column across chunks. Tokens, positions and errors are therefore exactly
+// those of Utf8Lexer on the whole input, however the input is split; only a max length fails
+// where the limit is crossed, as Lexer's does, not at the end of the token.
+public class PushLexer {
+    private static final int START = 0;   // before the next token (possibly in whitespace)
+    private static final int STRING = 1;  // inside a string
+    private static final int RUN = 2;     // inside a number, literal or stray characters
+
+    private final Utf8Lexer lexer = new Utf8Lexer(ByteBuffer.allocate(0));
+    private byte[] data = new byte[4096];
+    private ByteBuffer window = ByteBuffer.wrap(data);
+    private int tail = 0;          // end of the bytes received so far
+    private long windowStart = 0;  // input offset of data[0]
+    private boolean ended = false;
+    private long maxLength = Long.MAX_VALUE;
+
+    private int state = START;
+    private int scan = 0;          // next byte the boundary scan looks at
+
+    // Copies the chunk's remaining bytes; the chunk is fully consumed and can be reused at once.
+    public void feed(ByteBuffer chunk) {
+        int n = accepted(chunk.remaining());
+        reserve(n);
+        chunk.get(data, tail, n);
+        chunk.position(chunk.limit());
+        received(n);
+    }
+
+    public void feed(byte[] bytes, int offset, int length) {
+        int n = accepted(length);
+        reserve(n);
+        System.arraycopy(bytes, offset, data, tail, n);
+        received(n);
+    }
+
+    // Input longer than this many bytes fails with "Document exceeds maximum size of N" where
+    // the limit is crossed, as with Lexer.setMaxLength: no more than one byte past the limit is
+    // ever buffered, so an unterminated string cannot grow the buffer without bound.
+    public void setMaxLength(long maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    // True once more than the max length has been fed.
+    public boolean exceedsMaxLength() {
+        return windowStart + tail > maxLength;
+    }
+
+    // No more input: the last token may now end at the end of the input, and EOF follows.
+    public void endOfInput() {
+        ended = true;
+    }
+
+    // The next token, or null if it has not been fully received yet. After endOfInput() this
+    // never returns null; the last token is EOF.
+    public Token nextToken() {
+        boolean tooLong = exceedsMaxLength();
+        if (!ended && !tooLong && !tokenReady()) {
+            return null;
+        }
+        Token token;
+        try {
+            token = lexer.nextToken();
+        } catch (LexerException e) {
+            if (!tooLong) throw e;
+            throw tooLong(e.getLine(), e.getColumn());
+        }
+        // past the limit the input is lexed as if it ended there; what reaches the cut fails
+        if (tooLong && (token.getType() == TokenType.EOF || token.getOffset() > maxLength)) {
+            throw tooLong(token.getLine(), token.getColumn());
+        }
+        state = START;
+        scan = lexer.position();
+        return token;
+    }
+
+    // ---------- BUFFER ----------
+    // How many of n fed bytes to keep: the rest of the input past the first byte beyond the
+    // max length is dropped.
+    private int accepted(int n) {
+        if (maxLength == Long.MAX_VALUE) return n;
+        long room = maxLength + 1 - (windowStart + tail);
+        return (int) Math.max(0, Math.min(n, room));
+    }
+
+    private LexerException tooLong(int line, int column) {
+        return new LexerException("Document exceeds maximum size of " + maxLength, line, column);
+    }
+
+    // Makes room for n more bytes, dropping the ones already lexed first.
+    private void reserve(int n) {
+        if (ended) {
+            throw new IllegalStateException("Input has already ended");
+        }
+        if (tail + n <= data.length) return;
+
+        int head = lexer.position();
+        int kept = tail - head;
+        byte[] target = kept + n <= data.length ? data : new byte[Math.max(kept + n, data.length * 2)];
+        System.arraycopy(data, head, target, 0, kept);
+        if (target != data) {
+            data = target;
+            window = ByteBuffer.wrap(data);
+        }
+        tail = kept;
+        scan -= head;
+        windowStart += head;
+        lexer.window(window, 0, tail, windowStart);
+    }
+
+    private void received(int n) {
+        tail += n;
+        lexer.window(window, lexer.position(), tail, windowStart);
+    }
+
+    // ---------- BOUNDARIES ----------
+    // True once the bytes from the lexer's position hold the whole next token and, for a number
+    // or literal, the delimiter after it. The scan resumes where it stopped on the last call.
+    private boolean tokenReady() {
+        int p = scan;
+        if (state == START) {
+            while (p < tail && isWhitespace(data[p])) p++;
+            if (p == tail) {
+                scan = p;
+                return false;
+            }
+            byte b = data[p];
+            if (isStructural(b)) return true;
+            if (b == '"') {
+                state = STRING;
+                p++;
+            } else {
+                state = RUN;
+            }
+        }
+
+        if (state == STRING) {
+            while (p < tail) {
+                byte b = data[p];
+                if (b == '"') return true;
+                if (b == '\\') {
+                    int end = escapeEnd(p + 1);
+                    if (end < 0) break;
+                    p = end;
+                } else {
+                    p++;
+                }
+            }
+            scan = p;
+            return false;
+        }
+
+        while (p < tail) {
+            byte b = data[p];
+            if (isWhitespace(b) || isStructural(b) || b == '"') return true;
+            p++;
+        }
+        scan = p;
+        return false;
+    }
+
+    // Index just past the escape whose escaped char is at q, or -1 if it is not all here yet.
+    // A \\u escape spans four chars whatever they are, the way the lexer reads it.
+    private int escapeEnd(int q) {
+        if (q >= tail) return -1;
+        if (data[q] != 'u') return q + 1;
+
+        int p = q + 1;
+        for (int i = 0; i < 4; i++) {
+            if (p >= tail) return -1;
+            int extra = continuationBytes(data[p++]);
+            for (int k = 0; k < extra; k++) {
+                if (p >= tail) return -1;
+                if ((data[p] & 0xC0) != 0x80) return p;  // malformed: the lexer stops here
+                p++;
+            }
+        }
+        return p;
+    }
+
+    private static int continuationBytes(byte lead) {
+        int b = lead & 0xFF;  // lead bytes the lexer accepts, see Utf8Lexer.decodeChar()
+        if (b >= 0xC2 && b <= 0xDF) return 1;
+        if (b >= 0xE0 && b <= 0xEF) return 2;
+        if (b >= 0xF0 && b <= 0xF4) return 3;
+        return 0;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isStructural(byte b) {
+        return b == '{' || b == '}' || b == '[' || b == ']' || b == ',' || b == ':';
+    }
+}
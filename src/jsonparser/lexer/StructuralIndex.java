@@ -0,0 +1,96 @@
+package jsonparser.lexer;
+
+import java.util.Arrays;
+
+// Positions of the structural characters of a document: brackets, braces, commas and colons
+// outside strings, plus the opening and closing quote of every string. Backslash escapes are
+// honored, so an escaped quote does not end a string. Nothing else is validated; this is the
+// cheap first pass that lets later passes jump between structural positions.
+public class StructuralIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String source;
+    private int[] positions;
+    private int size;
+    private boolean unterminated;  // the input ends inside a string
+
+    private StructuralIndex(String source) {
+        this.source = source;
+        // starts small and doubles: a guess from the source length reserves half a byte per char
+        // even for documents made mostly of long strings, which have few structural characters
+        this.positions = new int[INITIAL_CAPACITY];
+    }
+
+    public static StructuralIndex build(String source) {
+        StructuralIndex index = new StructuralIndex(source);
+        index.scan();
+        return index;
+    }
+
+    private void scan() {
+        String s = source;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '{': case '}': case '[': case ']': case ',': case ':':
+                    add(i);
+                    i++;
+                    break;
+                case '"':
+                    add(i);
+                    i = closingQuote(s, i + 1, n);
+                    if (i == n) {
+                        unterminated = true;
+                        return;
+                    }
+                    add(i);
+                    i++;
+                    break;
+                default:
+                    i++;
+            }
+        }
+    }
+
+    // Position of the quote ending a string whose content starts at 'from', or n if there is none.
+    private static int closingQuote(String s, int from, int n) {
+        for (int i = from; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '"') return i;
+            if (c == '\\') i++;
+        }
+        return n;
+    }
+
+    private void add(int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = position;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Offset in the source of the i-th structural character.
+    public int position(int i) {
+        return positions[i];
+    }
+
+    // The i-th structural character ('"' for a string boundary).
+    public char charAt(int i) {
+        return source.charAt(positions[i]);
+    }
+
+    // True if the source ends inside a string.
+    public boolean isUnterminated() {
+        return unterminated;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -1,17 +1,52 @@
 package jsonparser.lexer;
 
+import jsonparser.util.JsonNumber;
+import jsonparser.util.JsonStrings;
+import jsonparser.util.LineIndex;
+
 // Represents a single token produced by the lexer.
+// Tokens from a Lexer keep only their offset; line and column are looked up when first asked for.
 public class Token {
     private final TokenType type;
-    private final String value;
-    private final int line;
-    private final int column;
+    private String value;
+    private JsonNumber number;
+    private String raw;       // STRING contents still holding escape sequences
+    private int line;
+    private int column;
+    private final long offset;
+    private final LineIndex lines;
 
     public Token(TokenType type, String value, int line, int column) {
+        this(type, value, line, column, -1);
+    }
+
+    public Token(TokenType type, String value, int line, int column, long offset) {
         this.type = type;
         this.value = value;
         this.line = line;
         this.column = column;
+        this.offset = offset;
+        this.lines = null;
+    }
+
+    // Position is resolved lazily from the offset just past the token.
+    public Token(TokenType type, String value, long offset, LineIndex lines) {
+        this.type = type;
+        this.value = value;
+        this.offset = offset;
+        this.lines = lines;
+    }
+
+    // A NUMBER token; its text is only produced if getValue() is called.
+    public Token(JsonNumber number, long offset, LineIndex lines) {
+        this(TokenType.NUMBER, null, offset, lines);
+        this.number = number;
+    }
+
+    // A STRING token whose escape sequences are decoded on the first getValue().
+    public Token(String raw, boolean escaped, long offset, LineIndex lines) {
+        this(TokenType.STRING, escaped ? null : raw, offset, lines);
+        if (escaped) this.raw = raw;
     }
 
     public TokenType getType() {
@@ -19,16 +54,49 @@ public class Token {
     }
 
     public String getValue() {
+        if (value == null) {
+            if (raw != null) {
+                value = JsonStrings.unescape(raw, 0, raw.length());
+                raw = null;
+            } else if (number != null) {
+                value = number.toString();
+            }
+        }
         return value;
     }
 
-    public int getLine() { return line; }
+    // Numeric value of a NUMBER token (null for other types).
+    public JsonNumber getNumber() {
+        if (number == null && type == TokenType.NUMBER) {
+            number = JsonNumber.parse(value);
+        }
+        return number;
+    }
+
+    public int getLine() {
+        resolvePosition();
+        return line;
+    }
 
-    public int getColumn() { return column; }
+    public int getColumn() {
+        resolvePosition();
+        return column;
+    }
+
+    // Offset just past the token, or -1 if unknown.
+    public long getOffset() { return offset; }
+
+    private void resolvePosition() {
+        if (line == 0) {
+            line = lines.lineOf(offset);
+            column = lines.columnOf(offset);
+        }
+    }
 
     @Override
     public String toString() {
+        String value = getValue();
         return type + (value != null ? " (" + value + ")" : "") +
-                " at " + line + ":" + column;
+                " at " + getLine() + ":" + getColumn();
     }
 }
@@ -0,0 +1,30 @@
+package jsonparser.lexer;
+
+import jsonparser.util.JsonNumber;
+import jsonparser.util.SymbolTable;
+
+// Read access to the current token of a token sequence, without requiring a Token object per token.
+public interface TokenCursor {
+    TokenType type();
+
+    // Text of the current token (decoded for strings, null for EOF).
+    String value();
+
+    // Value of the current STRING token as an object key, canonicalized through the table.
+    default String key(SymbolTable keys) {
+        return keys.intern(value());
+    }
+
+    // Value of the current NUMBER token.
+    JsonNumber number();
+
+    int line();
+
+    int column();
+
+    // Offset just past the current token, or -1 if the source does not track offsets.
+    long offset();
+
+    // Moves to the next token.
+    void advance();
+}
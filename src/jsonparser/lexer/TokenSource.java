@@ -0,0 +1,6 @@
+package jsonparser.lexer;
+
+// Anything that hands out tokens one at a time. After the input is exhausted it keeps returning EOF.
+public interface TokenSource {
+    Token nextToken();
+}
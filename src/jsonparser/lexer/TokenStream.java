@@ -0,0 +1,109 @@
+package jsonparser.lexer;
+
+import jsonparser.util.JsonNumber;
+import java.util.*;
+
+// Pulls tokens from a TokenSource on demand and keeps only a small lookahead window in memory.
+public class TokenStream implements TokenCursor {
+
+    public static final int DEFAULT_LOOKAHEAD = 2;
+
+    private final TokenSource source;
+    private final Token[] buffer;
+    private int head = 0;   // index of the current token inside the ring buffer
+    private int count = 0;  // number of buffered tokens
+
+    public TokenStream(TokenSource source, int lookahead) {
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("Lookahead must be at least 1");
+        }
+        this.source = source;
+        this.buffer = new Token[lookahead];
+    }
+
+    public TokenStream(TokenSource source) {
+        this(source, DEFAULT_LOOKAHEAD);
+    }
+
+    // Wraps an already tokenized list (as produced by Lexer.tokenize()). Past its end the list
+    // keeps yielding EOF: its own final EOF token, or one placed after its last token.
+    public static TokenStream of(List<Token> tokens) {
+        Iterator<Token> it = tokens.iterator();
+        return new TokenStream(new TokenSource() {
+            private Token last;
+
+            @Override
+            public Token nextToken() {
+                if (it.hasNext()) {
+                    last = it.next();
+                } else if (last == null) {
+                    last = new Token(TokenType.EOF, null, 1, 1);
+                } else if (last.getType() != TokenType.EOF) {
+                    last = new Token(TokenType.EOF, null, last.getLine(), last.getColumn(), last.getOffset());
+                }
+                return last;
+            }
+        });
+    }
+
+    // Current token, without consuming it.
+    public Token peek() {
+        return peek(0);
+    }
+
+    // Token n positions ahead of the current one (0 = current).
+    public Token peek(int n) {
+        if (n >= buffer.length) {
+            throw new IllegalArgumentException("Lookahead " + n + " exceeds buffer size " + buffer.length);
+        }
+        while (count <= n) {
+            buffer[(head + count) % buffer.length] = source.nextToken();
+            count++;
+        }
+        return buffer[(head + n) % buffer.length];
+    }
+
+    @Override
+    public TokenType type() {
+        return peek().getType();
+    }
+
+    @Override
+    public String value() {
+        return peek().getValue();
+    }
+
+    @Override
+    public JsonNumber number() {
+        return peek().getNumber();
+    }
+
+    @Override
+    public int line() {
+        return peek().getLine();
+    }
+
+    @Override
+    public int column() {
+        return peek().getColumn();
+    }
+
+    @Override
+    public long offset() {
+        return peek().getOffset();
+    }
+
+    @Override
+    public void advance() {
+        next();
+    }
+
+    // Returns the current token and moves past it.
+    public Token next() {
+        Token t = peek(0);
+        buffer[head] = null;
+        head = (head + 1) % buffer.length;
+        count--;
+        return t;
+    }
+}
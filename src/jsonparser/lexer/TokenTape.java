@@ -0,0 +1,182 @@
+package jsonparser.lexer;
+
+import jsonparser.util.*;
+import java.util.*;
+
+// Compact token list for an in-memory document: parallel arrays of type, start offset and length.
+// No Token objects or token strings are created while lexing; text is cut out of the source
+// only when value(i) or text(i) is called.
+public class TokenTape {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int size = 0;
+    private LineIndex lines;
+
+    private TokenTape(String source) {
+        this.source = source;
+        // starts small and doubles: a guess from the source length would reserve nine bytes per
+        // four chars, far too much for documents made mostly of long strings
+        this.types = new byte[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+    }
+
+    // Lexes the whole source. Throws LexerException exactly like Lexer.tokenize().
+    public static TokenTape of(String source) {
+        TokenTape tape = new TokenTape(source);
+        Lexer lexer = new Lexer(source);
+
+        TokenType type;
+        do {
+            type = lexer.scan();
+            int start = (int) lexer.getTokenStart();
+            tape.add(type, start, (int) lexer.getTokenEnd() - start);
+        } while (type != TokenType.EOF);
+
+        return tape;
+    }
+
+    private void add(TokenType type, int start, int length) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Number of tokens, including the final EOF.
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int i) {
+        return TYPES[types[i]];
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    // Raw source text of token i (strings keep their quotes and escapes).
+    public String text(int i) {
+        return source.substring(starts[i], starts[i] + lengths[i]);
+    }
+
+    // Same value a Token would carry: decoded string contents, number text, literal name.
+    public String value(int i) {
+        switch (type(i)) {
+            case STRING: return JsonStrings.unescape(source, starts[i] + 1, starts[i] + lengths[i] - 1);
+            case NUMBER: return text(i);
+            case TRUE: return "true";
+            case FALSE: return "false";
+            case NULL: return "null";
+            case LEFT_BRACE: return "{";
+            case RIGHT_BRACE: return "}";
+            case LEFT_BRACKET: return "[";
+            case RIGHT_BRACKET: return "]";
+            case COMMA: return ",";
+            case COLON: return ":";
+            default: return null;
+        }
+    }
+
+    // Decoded value of STRING token i, canonicalized through the symbol table. Escape-free
+    // strings are looked up straight from the source, so a cached key allocates nothing.
+    public String key(int i, SymbolTable keys) {
+        int from = starts[i] + 1;
+        int to = starts[i] + lengths[i] - 1;
+        for (int j = from; j < to; j++) {
+            if (source.charAt(j) == '\\') return keys.intern(value(i));
+        }
+        return keys.intern(source, from, to);
+    }
+
+    // Value of NUMBER token i, parsed in place from the source (plain longs allocate no String).
+    public JsonNumber number(int i) {
+        return JsonNumber.parse(source, starts[i], starts[i] + lengths[i]);
+    }
+
+    // Tokens report the position just past their last char, as Lexer does.
+    public int line(int i) {
+        return lineIndex().lineOf(starts[i] + lengths[i]);
+    }
+
+    public int column(int i) {
+        return lineIndex().columnOf(starts[i] + lengths[i]);
+    }
+
+    public Token token(int i) {
+        return new Token(type(i), value(i), line(i), column(i));
+    }
+
+    public TokenCursor cursor() {
+        return new Cursor();
+    }
+
+    private LineIndex lineIndex() {
+        if (lines == null) lines = new LineIndex(source);
+        return lines;
+    }
+
+    private class Cursor implements TokenCursor {
+        private int index = 0;
+
+        @Override
+        public TokenType type() {
+            return TokenTape.this.type(index);
+        }
+
+        @Override
+        public String value() {
+            return TokenTape.this.value(index);
+        }
+
+        @Override
+        public JsonNumber number() {
+            return TokenTape.this.number(index);
+        }
+
+        @Override
+        public String key(SymbolTable keys) {
+            return TokenTape.this.key(index, keys);
+        }
+
+        @Override
+        public int line() {
+            return TokenTape.this.line(index);
+        }
+
+        @Override
+        public int column() {
+            return TokenTape.this.column(index);
+        }
+
+        @Override
+        public long offset() {
+            return starts[index] + lengths[index];
+        }
+
+        @Override
+        public void advance() {
+            if (index < size - 1) index++;
+        }
+    }
+}
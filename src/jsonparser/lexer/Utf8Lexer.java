@@ -0,0 +1,465 @@
+package jsonparser.lexer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+// A lexer that scans UTF-8 bytes directly (byte[], heap/direct ByteBuffer or memory-mapped file).
+// Bytes are only decoded inside string values; everything else is matched as ASCII.
+// It produces the same tokens, positions and errors as Lexer does for the decoded text.
+public class Utf8Lexer implements TokenSource {
+
+    // Size of each mapping window when lexing a FileChannel.
+    static final long MAP_WINDOW = 1L << 30;
+
+    private ByteBuffer buf;
+    private int pos;
+    private int limit;
+    private final FileChannel channel;  // null unless the input is a mapped file
+    private long windowStart = 0;       // file offset of buf's index 0
+    private final int start;            // buffer index where the input begins
+    private final long fileSize;
+
+    private int line = 1;
+    private int column = 1;
+
+    private char[] chars = new char[64];  // scratch space for token text
+    private final int[] hexDigits = new int[4];
+
+    public Utf8Lexer(byte[] input) {
+        this(ByteBuffer.wrap(input));
+    }
+
+    // Lexes the bytes between the buffer's position and limit; the buffer itself is not modified.
+    public Utf8Lexer(ByteBuffer input) {
+        this.buf = input;
+        this.pos = input.position();
+        this.start = pos;
+        this.limit = input.limit();
+        this.channel = null;
+        this.fileSize = 0;
+    }
+
+    private Utf8Lexer(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.start = 0;
+        this.buf = ByteBuffer.allocate(0);
+        map(0);
+    }
+
+    // Lexes a file through read-only memory mappings, so it is never copied onto the heap.
+    // Files larger than one mapping are walked window by window.
+    public static Utf8Lexer map(FileChannel channel) throws IOException {
+        return new Utf8Lexer(channel);
+    }
+
+    @Override
+    public Token nextToken() {
+        skipWhitespace();
+
+        int b = peek();
+        if (b < 0) {
+            return new Token(TokenType.EOF, null, line, column, offset());
+        }
+
+        switch (b) {
+            case '{':
+                advance();
+                return new Token(TokenType.LEFT_BRACE, "{", line, column, offset());
+            case '}':
+                advance();
+                return new Token(TokenType.RIGHT_BRACE, "}", line, column, offset());
+            case '[':
+                advance();
+                return new Token(TokenType.LEFT_BRACKET, "[", line, column, offset());
+            case ']':
+                advance();
+                return new Token(TokenType.RIGHT_BRACKET, "]", line, column, offset());
+            case ',':
+                advance();
+                return new Token(TokenType.COMMA, ",", line, column, offset());
+            case ':':
+                advance();
+                return new Token(TokenType.COLON, ":", line, column, offset());
+            case '"':
+                return stringToken();
+            default:
+                if (isDigit(b) || b == '-') {
+                    return numberToken();
+                }
+                if (isAlpha(b)) {
+                    return literalToken();
+                }
+        }
+
+        throw new LexerException(
+                "Unexpected character: '" + unexpectedChar(b) + "'",
+                line,
+                column
+        );
+    }
+
+    public List<Token> tokenize() {
+        List<Token> tokens = new ArrayList<>();
+
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.getType() != TokenType.EOF);
+
+        return tokens;
+    }
+
+    // ---------- PUSH INPUT ----------
+    // Lets a PushLexer hand over a buffer it keeps refilling: lexing continues at 'pos' of 'buf'
+    // and stops at 'limit', and buf's index 0 sits at input offset 'windowStart'.
+    void window(ByteBuffer buf, int pos, int limit, long windowStart) {
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+        this.windowStart = windowStart;
+    }
+
+    // Index in the buffer of the next byte to read.
+    int position() {
+        return pos;
+    }
+
+    // ---------- BYTE ACCESS ----------
+    // Byte offset of the current position in the whole input.
+    private long offset() {
+        return windowStart + pos - start;
+    }
+
+    private int peek() {
+        if (pos == limit && !remap()) return -1;
+        return buf.get(pos) & 0xFF;
+    }
+
+    // Consumes one ASCII byte (or one raw byte of a multi-byte sequence) and tracks line/column.
+    private int advance() {
+        int b = peek();
+        if (b >= 0) {
+            pos++;
+            if (b == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        return b;
+    }
+
+    // Consumes a byte without touching line/column (continuation bytes).
+    private int advanceRaw() {
+        int b = peek();
+        if (b >= 0) pos++;
+        return b;
+    }
+
+    private boolean remap() {
+        if (channel == null) return false;
+        long next = windowStart + pos;
+        if (next >= fileSize) return false;
+        map(next);
+        return true;
+    }
+
+    private void map(long offset) {
+        try {
+            long size = Math.min(MAP_WINDOW, fileSize - offset);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            windowStart = offset;
+            pos = 0;
+            limit = (int) size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads the buffer directly instead of going through peek()/advance() per byte.
+    private void skipWhitespace() {
+        while (pos < limit || remap()) {
+            int p = pos;
+            while (p < limit) {
+                byte b = buf.get(p);
+                if (b == ' ' || b == '\t' || b == '\r') {
+                    column++;
+                } else if (b == '\n') {
+                    line++;
+                    column = 1;
+                } else {
+                    pos = p;
+                    return;
+                }
+                p++;
+            }
+            pos = p;
+        }
+    }
+
+    // ---------- STRING ----------
+    private Token stringToken() {
+        advance(); // skip opening quote
+
+        int len = 0;
+
+        while (true) {
+            len = appendPlainRun(len);
+
+            int b = peek();
+            if (b < 0) break;
+
+            if (b < 0x80) {
+                advance();
+                if (b == '"') {
+                    return new Token(TokenType.STRING, new String(chars, 0, len), line, column, offset());
+                }
+                if (b == '\\') {
+                    int escaped = peek();
+                    if (escaped < 0) {
+                        throw new LexerException("Invalid escape sequence", line, column);
+                    }
+                    char c;
+                    switch (escaped) {
+                        case '"': c = '"'; break;
+                        case '\\': c = '\\'; break;
+                        case '/': c = '/'; break;
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case 'n': c = '\n'; break;
+                        case 'r': c = '\r'; break;
+                        case 't': c = '\t'; break;
+                        case 'u':
+                            advance();
+                            len = append(len, parseUnicodeEscape());
+                            continue;
+                        default:
+                            // consume the offending character like Lexer does (one UTF-16 unit)
+                            int bad = decodeChar();
+                            if (!Character.isBmpCodePoint(bad)) column--;
+                            throw new LexerException(
+                                    "Invalid escape sequence: \\" + firstUnit(bad),
+                                    line,
+                                    column
+                            );
+                    }
+                    advance();
+                    len = append(len, c);
+                } else {
+                    len = append(len, (char) b);
+                }
+            } else {
+                int cp = decodeChar();
+                if (Character.isBmpCodePoint(cp)) {
+                    len = append(len, (char) cp);
+                } else {
+                    len = append(len, Character.highSurrogate(cp));
+                    len = append(len, Character.lowSurrogate(cp));
+                }
+            }
+        }
+
+        throw new LexerException(
+                "Unterminated string",
+                line,
+                column
+        );
+    }
+
+    // Copies the run of ASCII bytes other than '"', '\\' and '\n' that starts at the current byte
+    // straight into the token text; such bytes need no decoding and move only the column.
+    private int appendPlainRun(int len) {
+        int p = pos;
+        while (p < limit) {
+            byte b = buf.get(p);
+            if (b < 0 || b == '"' || b == '\\' || b == '\n') break;
+            if (len == chars.length) {
+                chars = Arrays.copyOf(chars, len * 2);
+            }
+            chars[len++] = (char) b;
+            p++;
+        }
+        column += p - pos;
+        pos = p;
+        return len;
+    }
+
+    // Decodes one UTF-8 sequence starting at the current byte; advances the column per UTF-16 unit.
+    // Only well-formed UTF-8 is accepted: overlong forms, surrogates (ED A0..BF) and code points
+    // past U+10FFFF are rejected through the allowed range of the first continuation byte.
+    private int decodeChar() {
+        int b = advanceRaw();
+        int cp;
+        int extra;
+        int low = 0x80;
+        int high = 0xBF;
+        if (b < 0x80) {
+            cp = b;
+            extra = 0;
+        } else if (b >= 0xC2 && b <= 0xDF) {
+            cp = b & 0x1F;
+            extra = 1;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            cp = b & 0x0F;
+            extra = 2;
+            if (b == 0xE0) low = 0xA0;
+            if (b == 0xED) high = 0x9F;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            cp = b & 0x07;
+            extra = 3;
+            if (b == 0xF0) low = 0x90;
+            if (b == 0xF4) high = 0x8F;
+        } else {
+            throw new LexerException("Invalid UTF-8 sequence", line, column);
+        }
+
+        for (int i = 0; i < extra; i++) {
+            int cont = peek();
+            if (cont < 0 || (cont & 0xC0) != 0x80 || (i == 0 && (cont < low || cont > high))) {
+                throw new LexerException("Invalid UTF-8 sequence", line, column);
+            }
+            advanceRaw();
+            cp = (cp << 6) | (cont & 0x3F);
+        }
+
+        if (cp == '\n') {
+            line++;
+            column = 1;
+        } else {
+            column += Character.charCount(cp);
+        }
+        return cp;
+    }
+
+    private char parseUnicodeEscape() {
+        int value = 0;
+        boolean valid = true;
+        for (int i = 0; i < 4; i++) {
+            if (peek() < 0) {
+                throw new LexerException("Incomplete unicode escape", line, column);
+            }
+            int cp = decodeChar();
+            hexDigits[i] = cp;
+            int digit = cp < 0x80 ? Character.digit(cp, 16) : -1;
+            if (digit < 0) valid = false;
+            value = (value << 4) | (digit & 0xF);
+        }
+        if (!valid) {
+            StringBuilder hex = new StringBuilder(4);
+            for (int cp : hexDigits) hex.appendCodePoint(cp);
+            throw new LexerException("Invalid unicode escape: \\u" + hex, line, column);
+        }
+        return (char) value;
+    }
+
+    private int append(int len, char c) {
+        if (len == chars.length) {
+            chars = Arrays.copyOf(chars, len * 2);
+        }
+        chars[len] = c;
+        return len + 1;
+    }
+
+    // ---------- NUMBER ----------
+    private Token numberToken() {
+        int len = 0;
+
+        if (peek() == '-') {
+            len = append(len, (char) advance());
+        }
+
+        if (peek() < 0)
+            throw new LexerException("Invalid number", line, column);
+
+        if (!isDigit(peek()))
+            throw new LexerException("Invalid number start", line, column);
+
+        if (peek() == '0') {
+            len = append(len, (char) advance());
+            if (isDigit(peek())) {
+                throw new LexerException("Leading zeros not allowed", line, column);
+            }
+        } else {
+            while (isDigit(peek())) {
+                len = append(len, (char) advance());
+            }
+        }
+
+        if (peek() == '.') {
+            len = append(len, (char) advance());
+            if (!isDigit(peek())) {
+                throw new LexerException("Invalid decimal format", line, column);
+            }
+            while (isDigit(peek())) {
+                len = append(len, (char) advance());
+            }
+        }
+
+        if (peek() == 'e' || peek() == 'E') {
+            len = append(len, (char) advance());
+            if (peek() == '+' || peek() == '-') {
+                len = append(len, (char) advance());
+            }
+            if (!isDigit(peek())) {
+                throw new LexerException("Invalid exponent", line, column);
+            }
+            while (isDigit(peek())) {
+                len = append(len, (char) advance());
+            }
+        }
+
+        return new Token(TokenType.NUMBER, new String(chars, 0, len), line, column, offset());
+    }
+
+    // ---------- LITERAL ----------
+    private Token literalToken() {
+        int len = 0;
+        while (isAlpha(peek())) {
+            len = append(len, (char) advance());
+        }
+
+        String literal = new String(chars, 0, len);
+
+        return switch (literal) {
+            case "true" -> new Token(TokenType.TRUE, literal, line, column, offset());
+            case "false" -> new Token(TokenType.FALSE, literal, line, column, offset());
+            case "null" -> new Token(TokenType.NULL, literal, line, column, offset());
+            default ->
+                    throw new LexerException("Invalid literal: " + literal, line, column);
+        };
+    }
+
+    // The character Lexer would report for an unexpected byte, without consuming it.
+    private char unexpectedChar(int b) {
+        if (b < 0x80) return (char) b;
+        // decodeChar() may move to the next mapping window; put the current one back afterwards
+        ByteBuffer markBuf = buf;
+        int markPos = pos, markLimit = limit, markLine = line, markColumn = column;
+        long markWindowStart = windowStart;
+        int cp = decodeChar();
+        buf = markBuf;
+        pos = markPos;
+        limit = markLimit;
+        windowStart = markWindowStart;
+        line = markLine;
+        column = markColumn;
+        return firstUnit(cp);
+    }
+
+    private static char firstUnit(int cp) {
+        return Character.isBmpCodePoint(cp) ? (char) cp : Character.highSurrogate(cp);
+    }
+
+    private boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private boolean isAlpha(int b) {
+        return b >= 'a' && b <= 'z';
+    }
+}
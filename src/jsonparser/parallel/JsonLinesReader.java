@@ -0,0 +1,247 @@
+package jsonparser.parallel;
+
+import jsonparser.lexer.*;
+import jsonparser.parser.*;
+import jsonparser.util.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+// Reads newline-delimited JSON (JSON Lines / NDJSON): one value per line, blank lines ignored.
+// The input is cut into chunks on line boundaries while earlier chunks are parsed in parallel
+// on a ForkJoinPool; each worker thread reuses its own lexer, parser and key table. Values come
+// back in input order, and only a bounded number of chunks is in flight, so inputs far larger
+// than memory can be streamed. A malformed record fails with its original line number, after
+// every record before it has been delivered.
+public class JsonLinesReader implements Iterable<JsonValue> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final InputStream in;
+    private final ForkJoinPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private final ThreadLocal<RecordParser> parsers = ThreadLocal.withInitial(RecordParser::new);
+
+    // Reads the stream (UTF-8) on the common pool; the caller stays responsible for closing it.
+    public JsonLinesReader(InputStream in) {
+        this(in, ForkJoinPool.commonPool());
+    }
+
+    public JsonLinesReader(InputStream in, ForkJoinPool pool) {
+        this.in = in;
+        this.pool = pool;
+    }
+
+    // Bytes per chunk (a chunk grows if a single record is longer).
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public List<JsonValue> readAll() {
+        List<JsonValue> values = new ArrayList<>();
+        for (JsonValue value : this) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    // Ordered stream of the records; the parsing itself already runs in parallel.
+    public Stream<JsonValue> stream() {
+        Spliterator<JsonValue> split = Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(split, false);
+    }
+
+    // The input can only be read once.
+    @Override
+    public Iterator<JsonValue> iterator() {
+        return new Records();
+    }
+
+    // ---------- RECORDS ----------
+    // Submits chunks ahead of the consumer and hands out their values in order.
+    private class Records implements Iterator<JsonValue> {
+        private final int window = 2 * pool.getParallelism() + 1;
+        private final ArrayDeque<ForkJoinTask<Batch>> pending = new ArrayDeque<>();
+        private final ChunkReader chunks = new ChunkReader();
+        private Iterator<JsonValue> current = Collections.emptyIterator();
+        private RuntimeException failure;  // thrown once the values before it are consumed
+        private boolean failed;
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (failed) {
+                    return false;
+                }
+                if (failure != null) {
+                    failed = true;
+                    pending.clear();
+                    throw failure;
+                }
+                while (pending.size() < window) {
+                    Chunk chunk = chunks.next();
+                    if (chunk == null) break;
+                    pending.add(pool.submit(() -> parse(chunk)));
+                }
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                Batch batch = pending.poll().join();
+                current = batch.values.iterator();
+                failure = batch.error;
+            }
+            return true;
+        }
+
+        @Override
+        public JsonValue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    // Parses every record of a chunk, stopping at the first malformed one.
+    private Batch parse(Chunk chunk) {
+        RecordParser parser = parsers.get();
+        String text = new String(chunk.bytes, 0, chunk.length, StandardCharsets.UTF_8);
+        Batch batch = new Batch();
+
+        int line = chunk.firstLine;
+        int from = 0;
+        while (from < text.length()) {
+            int end = text.indexOf('\n', from);
+            if (end < 0) end = text.length();
+
+            if (!isBlank(text, from, end)) {
+                try {
+                    batch.values.add(parser.parse(text, from, end, line));
+                } catch (LexerException | ParserException e) {
+                    batch.error = e;
+                    break;
+                }
+            }
+            line++;
+            from = end + 1;
+        }
+        return batch;
+    }
+
+    private static boolean isBlank(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r') return false;
+        }
+        return true;
+    }
+
+    // Per-thread state, reset for every record.
+    private static class RecordParser {
+        private final Lexer lexer = new Lexer("");
+        private final LexerCursor cursor = new LexerCursor(lexer);
+        private final Parser parser = new Parser(cursor, null);
+
+        RecordParser() {
+            parser.setKeyTable(new SymbolTable());
+        }
+
+        JsonValue parse(String text, int from, int to, int line) {
+            lexer.reset(text, from, to, line);
+            cursor.reset();
+            return parser.parse();
+        }
+    }
+
+    private static class Chunk {
+        final byte[] bytes;
+        final int length;
+        final int firstLine;
+
+        Chunk(byte[] bytes, int length, int firstLine) {
+            this.bytes = bytes;
+            this.length = length;
+            this.firstLine = firstLine;
+        }
+    }
+
+    private static class Batch {
+        final List<JsonValue> values = new ArrayList<>();
+        RuntimeException error;
+    }
+
+    // ---------- CHUNKING ----------
+    // Cuts the input after the last newline of each chunk; the rest is carried into the next one.
+    private class ChunkReader {
+        private byte[] carry = new byte[0];
+        private int carryLength = 0;
+        private int nextLine = 1;
+        private boolean eof = false;
+
+        Chunk next() {
+            if (eof && carryLength == 0) return null;
+
+            byte[] buf = new byte[carryLength + chunkSize];
+            System.arraycopy(carry, 0, buf, 0, carryLength);
+            int length = carryLength;
+            int scanned = carryLength;  // the carried bytes hold no newline
+
+            while (true) {
+                length = fill(buf, length);
+                int cut = lastNewline(buf, scanned, length);
+                if (cut >= 0 || eof) {
+                    int end = cut >= 0 ? cut + 1 : length;
+                    carryLength = length - end;
+                    if (carry.length < carryLength) carry = new byte[Math.max(carryLength, chunkSize)];
+                    System.arraycopy(buf, end, carry, 0, carryLength);
+
+                    Chunk chunk = new Chunk(buf, end, nextLine);
+                    nextLine += countNewlines(buf, end);
+                    return end > 0 ? chunk : null;
+                }
+                scanned = length;  // a record longer than the chunk: grow until its newline shows up
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+
+        // Reads until the buffer is full or the input ends.
+        private int fill(byte[] buf, int length) {
+            try {
+                while (length < buf.length) {
+                    int n = in.read(buf, length, buf.length - length);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += n;
+                }
+                return length;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int lastNewline(byte[] buf, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (buf[i] == '\n') return i;
+            }
+            return -1;
+        }
+
+        private int countNewlines(byte[] buf, int to) {
+            int count = 0;
+            for (int i = 0; i < to; i++) {
+                if (buf[i] == '\n') count++;
+            }
+            return count;
+        }
+    }
+}
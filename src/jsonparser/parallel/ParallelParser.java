@@ -0,0 +1,165 @@
+package jsonparser.parallel;
+
+import jsonparser.lexer.*;
+import jsonparser.parser.*;
+import jsonparser.util.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Parses a document whose root is a large array on several cores. A first pass builds a
+// StructuralIndex, which is enough to find the commas that separate the root's elements.
+// The elements are then split into contiguous batches that are parsed in parallel on a
+// ForkJoinPool, and assembled into the root JsonArray in order.
+//
+// Anything else (a small document, a root that is not an array) goes through the ordinary
+// Parser. If an element fails to parse, the whole document is parsed again sequentially, so
+// errors carry exactly the message and position the Parser reports.
+public class ParallelParser {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    public ParallelParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Documents shorter than this many chars are parsed sequentially.
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public JsonValue parse(String json) {
+        if (json.length() < parallelThreshold) {
+            return parseSequentially(json);
+        }
+
+        int[] bounds = elementBounds(StructuralIndex.build(json));
+        if (bounds == null) {
+            return parseSequentially(json);
+        }
+
+        try {
+            return parseElements(json, bounds);
+        } catch (LexerException | ParserException e) {
+            return parseSequentially(json);  // reports the error the way the Parser does
+        }
+    }
+
+    private JsonValue parseSequentially(String json) {
+        return new Parser(new Lexer(json), json).parse();
+    }
+
+    // ---------- SPLITTING ----------
+    // Start/end offsets of the root array's elements (bounds[2k], bounds[2k + 1]), or null if the
+    // root is not a single, properly closed array. Every closer must match the bracket it closes,
+    // so a mismatch anywhere, the root's own included, sends the document to the Parser.
+    private static int[] elementBounds(StructuralIndex index) {
+        String json = index.getSource();
+        if (index.isUnterminated() || index.size() == 0) return null;
+
+        int open = index.position(0);
+        if (index.charAt(0) != '[' || !isBlank(json, 0, open)) return null;
+
+        int[] bounds = new int[64];
+        int count = 0;
+        int start = open + 1;
+        char[] brackets = new char[16];  // opening bracket at each depth
+        int depth = 0;
+
+        for (int i = 0; i < index.size(); i++) {
+            char c = index.charAt(i);
+            if (c == '[' || c == '{') {
+                if (depth == brackets.length) {
+                    brackets = Arrays.copyOf(brackets, depth * 2);
+                }
+                brackets[depth++] = c;
+            } else if (c == ']' || c == '}') {
+                if (brackets[--depth] != (c == ']' ? '[' : '{')) return null;
+                if (depth == 0) {
+                    int close = index.position(i);
+                    if (i != index.size() - 1 || !isBlank(json, close + 1, json.length())) return null;
+                    if (count > 0 || !isBlank(json, start, close)) {
+                        bounds = add(bounds, count++, start, close);
+                    }
+                    return Arrays.copyOf(bounds, count * 2);
+                }
+            } else if (c == ',' && depth == 1) {
+                int comma = index.position(i);
+                bounds = add(bounds, count++, start, comma);
+                start = comma + 1;
+            } else if (c == '"') {
+                i++;  // the closing quote
+            }
+        }
+        return null;  // the root array is never closed
+    }
+
+    private static int[] add(int[] bounds, int k, int start, int end) {
+        if (2 * k + 1 >= bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * k] = start;
+        bounds[2 * k + 1] = end;
+        return bounds;
+    }
+
+    private static boolean isBlank(String json, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = json.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return false;
+        }
+        return true;
+    }
+
+    // ---------- PARSING ----------
+    // Batches of roughly equal length, a few per worker so that uneven elements even out.
+    private JsonValue parseElements(String json, int[] bounds) {
+        int count = bounds.length / 2;
+        JsonValue[] values = new JsonValue[count];
+
+        int batches = Math.min(count, 4 * pool.getParallelism());
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        long total = count == 0 ? 0 : bounds[bounds.length - 1] - bounds[0];
+        int first = 0;
+        for (int b = 1; b <= batches && first < count; b++) {
+            long target = bounds[0] + total * b / batches;
+            int last = first + 1;
+            while (last < count && (b == batches || bounds[2 * last] < target)) last++;
+
+            int from = first;
+            int to = last;
+            tasks.add(pool.submit(() -> parseBatch(json, bounds, from, to, values)));
+            first = last;
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        JsonArray array = new JsonArray();
+        for (JsonValue value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    // Each element is parsed as a document of its own, with one lexer and parser per batch.
+    private static void parseBatch(String json, int[] bounds, int from, int to, JsonValue[] values) {
+        Lexer lexer = new Lexer("");
+        LexerCursor cursor = new LexerCursor(lexer);
+        Parser parser = new Parser(cursor, null);
+        parser.setKeyTable(new SymbolTable());
+
+        for (int k = from; k < to; k++) {
+            lexer.reset(json, bounds[2 * k], bounds[2 * k + 1], 1);
+            cursor.reset();
+            values[k] = parser.parse();
+        }
+    }
+}
@@ -1,21 +1,360 @@
 package jsonparser.parser;
 
-import java.util.ArrayList;
-import java.util.List;
+import jsonparser.util.JsonNumber;
+import jsonparser.writer.JsonWriter;
 
+import java.util.*;
+
+// Elements are stored by kind: while every element added so far is a parsed integer, a
+// number spelled as its double, or a boolean, they live in a primitive long[] / double[] /
+// bit set. The first element that does not fit switches the array to generic JsonValue
+// storage. Primitive elements are wrapped in a JsonPrimitive only when read through
+// getValues(); use the typed getters to avoid that.
+// A double[] element reads back with the shortest digits of its double, so only numbers
+// already written that way go there (see JsonNumber.isShortestDouble()). 1.50 or 1e23 make the
+// array generic and keep their spelling and BigDecimal scale, as they do anywhere else.
 public class JsonArray implements JsonValue {
-    private final List<JsonValue> values = new ArrayList<>();
+    private static final int EMPTY = 0;
+    private static final int LONGS = 1;
+    private static final int DOUBLES = 2;
+    private static final int BOOLEANS = 3;
+    private static final int GENERIC = 4;
+
+    private static final JsonPrimitive TRUE = new JsonPrimitive(true);
+    private static final JsonPrimitive FALSE = new JsonPrimitive(false);
+
+    private int kind = EMPTY;
+    private int size = 0;
+    private long[] longs;      // LONGS values, or BOOLEANS bits
+    private double[] doubles;  // DOUBLES values
+    private long[] integral;   // DOUBLES: bit set when the element was written as an integer
+    private JsonValue[] values;
+    private List<JsonValue> listView;
 
     public void add(JsonValue v) {
-        values.add(v);
+        JsonNumber number = parsedNumber(v);
+
+        switch (kind) {
+            case EMPTY:
+                if (number != null && number.isLong()) {
+                    kind = LONGS;
+                    longs = new long[8];
+                } else if (number != null && number.isShortestDouble()) {
+                    kind = DOUBLES;
+                    doubles = new double[8];
+                    integral = new long[1];
+                } else if (isBoolean(v)) {
+                    kind = BOOLEANS;
+                    longs = new long[1];
+                } else {
+                    kind = GENERIC;
+                    values = new JsonValue[8];
+                }
+                add(v);
+                return;
+            case LONGS:
+                if (number != null && number.isLong()) {
+                    addLong(number.asLong());
+                    return;
+                }
+                if (number != null && number.isShortestDouble() && longsFitDouble()) {
+                    toDoubles();
+                    add(v);
+                    return;
+                }
+                break;
+            case DOUBLES:
+                if (number != null && number.isShortestDouble()) {
+                    addDouble(number.asDouble(), number.isLong());
+                    return;
+                }
+                break;
+            case BOOLEANS:
+                if (isBoolean(v)) {
+                    addBoolean((Boolean) ((JsonPrimitive) v).get());
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        toGeneric();
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = v;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public JsonValue get(int i) {
+        checkIndex(i);
+        switch (kind) {
+            case LONGS:
+                return new JsonPrimitive(JsonNumber.of(longs[i]));
+            case DOUBLES:
+                return new JsonPrimitive(isIntegral(i) ? JsonNumber.of((long) doubles[i]) : JsonNumber.of(doubles[i]));
+            case BOOLEANS:
+                return getBoolean(i) ? TRUE : FALSE;
+            default:
+                return values[i];
+        }
+    }
+
+    public double getDouble(int i) {
+        checkIndex(i);
+        switch (kind) {
+            case LONGS: return longs[i];
+            case DOUBLES: return doubles[i];
+            default: return ((JsonPrimitive) get(i)).asDouble();
+        }
+    }
+
+    public long getLong(int i) {
+        checkIndex(i);
+        switch (kind) {
+            case LONGS: return longs[i];
+            case DOUBLES: return JsonNumber.of(doubles[i]).asLong();
+            default: return ((JsonPrimitive) get(i)).asLong();
+        }
+    }
+
+    public boolean getBoolean(int i) {
+        checkIndex(i);
+        if (kind == BOOLEANS) {
+            return (longs[i >>> 6] & (1L << i)) != 0;
+        }
+        return (Boolean) ((JsonPrimitive) get(i)).get();
     }
 
+    public double[] toDoubleArray() {
+        if (kind == DOUBLES) return Arrays.copyOf(doubles, size);
+        double[] out = new double[size];
+        for (int i = 0; i < size; i++) out[i] = getDouble(i);
+        return out;
+    }
+
+    public long[] toLongArray() {
+        if (kind == LONGS) return Arrays.copyOf(longs, size);
+        long[] out = new long[size];
+        for (int i = 0; i < size; i++) out[i] = getLong(i);
+        return out;
+    }
+
+    // Live List view; primitive elements are wrapped on access.
     public List<JsonValue> getValues() {
-        return values;
+        if (listView == null) listView = new ListView();
+        return listView;
     }
 
+    // Compact JSON text.
     @Override
     public String toString() {
-        return values.toString();
+        return JsonWriter.toJson(this);
+    }
+
+    // ---------- TYPED STORAGE ----------
+    // For serializers: true when every element lives in a long[] / double[] / bit set, so the
+    // elements can be copied out through the typed getters and isInteger(), and the array
+    // rebuilt with the matching factory below, without wrapping a single element.
+    public boolean hasLongStorage() {
+        return kind == LONGS;
+    }
+
+    public boolean hasDoubleStorage() {
+        return kind == DOUBLES;
+    }
+
+    public boolean hasBooleanStorage() {
+        return kind == BOOLEANS;
+    }
+
+    // True if element i is a number written as an integer (1 rather than 1.0).
+    public boolean isInteger(int i) {
+        checkIndex(i);
+        switch (kind) {
+            case LONGS: return true;
+            case DOUBLES: return isIntegral(i);
+            case BOOLEANS: return false;
+            default:
+                JsonNumber n = parsedNumber(values[i]);
+                return n != null && n.isLong();
+        }
+    }
+
+    // The first size values as an array; the array is taken over, not copied.
+    public static JsonArray ofLongs(long[] values, int size) {
+        JsonArray array = new JsonArray();
+        if (size > 0) {
+            array.kind = LONGS;
+            array.longs = values;
+            array.size = size;
+        }
+        return array;
+    }
+
+    // Bit i of integral (word i / 64) is set when element i is an integer; every value must be
+    // a number that the parser would have stored as a double (see JsonNumber.isShortestDouble()).
+    public static JsonArray ofDoubles(double[] values, long[] integral, int size) {
+        JsonArray array = new JsonArray();
+        if (size > 0) {
+            array.kind = DOUBLES;
+            array.doubles = values;
+            array.integral = integral;
+            array.size = size;
+        }
+        return array;
+    }
+
+    // Bit i (word i / 64) holds element i.
+    public static JsonArray ofBooleans(long[] bits, int size) {
+        JsonArray array = new JsonArray();
+        if (size > 0) {
+            array.kind = BOOLEANS;
+            array.longs = bits;
+            array.size = size;
+        }
+        return array;
+    }
+
+    // ---------- STORAGE ----------
+    private static JsonNumber parsedNumber(JsonValue v) {
+        if (v instanceof JsonPrimitive && ((JsonPrimitive) v).get() instanceof JsonNumber) {
+            return (JsonNumber) ((JsonPrimitive) v).get();
+        }
+        return null;
+    }
+
+    private static boolean isBoolean(JsonValue v) {
+        return v instanceof JsonPrimitive && ((JsonPrimitive) v).get() instanceof Boolean;
+    }
+
+    private void addLong(long value) {
+        if (size == longs.length) longs = Arrays.copyOf(longs, size * 2);
+        longs[size++] = value;
+    }
+
+    private void addDouble(double value, boolean isInteger) {
+        if (size == doubles.length) doubles = Arrays.copyOf(doubles, size * 2);
+        if ((size >>> 6) == integral.length) integral = Arrays.copyOf(integral, integral.length * 2);
+        doubles[size] = value;
+        if (isInteger) integral[size >>> 6] |= 1L << size;
+        size++;
+    }
+
+    private void addBoolean(boolean value) {
+        if ((size >>> 6) == longs.length) longs = Arrays.copyOf(longs, longs.length * 2);
+        if (value) longs[size >>> 6] |= 1L << size;
+        size++;
+    }
+
+    private boolean isIntegral(int i) {
+        return (integral[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private boolean longsFitDouble() {
+        for (int i = 0; i < size; i++) {
+            if (Math.abs(longs[i]) > 1L << 53) return false;
+        }
+        return true;
+    }
+
+    private void toDoubles() {
+        double[] converted = new double[Math.max(8, longs.length)];
+        long[] bits = new long[(converted.length >>> 6) + 1];
+        for (int i = 0; i < size; i++) {
+            converted[i] = longs[i];
+            bits[i >>> 6] |= 1L << i;
+        }
+        doubles = converted;
+        integral = bits;
+        longs = null;
+        kind = DOUBLES;
+    }
+
+    private void toGeneric() {
+        if (kind == GENERIC) return;
+        JsonValue[] generic = new JsonValue[Math.max(8, size * 2)];
+        for (int i = 0; i < size; i++) {
+            generic[i] = get(i);
+        }
+        values = generic;
+        longs = null;
+        doubles = null;
+        integral = null;
+        kind = GENERIC;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+    }
+
+    // ---------- LIST VIEW ----------
+    private class ListView extends AbstractList<JsonValue> implements RandomAccess {
+        @Override
+        public JsonValue get(int i) {
+            return JsonArray.this.get(i);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(JsonValue v) {
+            JsonArray.this.add(v);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public JsonValue set(int i, JsonValue v) {
+            checkIndex(i);
+            toGeneric();
+            JsonValue old = values[i];
+            values[i] = v;
+            return old;
+        }
+
+        @Override
+        public void add(int i, JsonValue v) {
+            if (i < 0 || i > size) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+            }
+            add(v);
+            if (i < size - 1) {
+                toGeneric();
+                System.arraycopy(values, i, values, i + 1, size - 1 - i);
+                values[i] = v;
+            }
+        }
+
+        @Override
+        public JsonValue remove(int i) {
+            checkIndex(i);
+            toGeneric();
+            JsonValue old = values[i];
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            values[--size] = null;
+            modCount++;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            kind = EMPTY;
+            size = 0;
+            longs = null;
+            doubles = null;
+            integral = null;
+            values = null;
+            modCount++;
+        }
     }
 }
@@ -0,0 +1,23 @@
+package jsonparser.parser;
+
+// Receives parse events in document order (SAX style).
+// Object members arrive as key(...) followed by the events of the member's value.
+public interface JsonHandler {
+    void startObject();
+
+    void key(String key);
+
+    void endObject();
+
+    void startArray();
+
+    void endArray();
+
+    void stringValue(String value);
+
+    void numberValue(Number value);
+
+    void booleanValue(boolean value);
+
+    void nullValue();
+}
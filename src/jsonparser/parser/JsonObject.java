@@ -1,21 +1,256 @@
 package jsonparser.parser;
 
-import java.util.Map;
-import java.util.HashMap;
+import jsonparser.writer.JsonWriter;
 
+import java.util.*;
+
+// Members are kept in insertion (document) order in flat key/value arrays.
+// Small objects are searched linearly; past HASH_THRESHOLD members an open-addressing
+// index of entry positions is added, so lookups stay O(1) for wide objects. Removing a member
+// drops the index and the next lookup rebuilds it, so a run of removals (say through the map
+// view's iterator) pays for one rebuild, not one each.
 public class JsonObject implements JsonValue {
-    private final Map<String, JsonValue> map = new HashMap<>();
+    static final int HASH_THRESHOLD = 8;
+
+    private static final String[] NO_KEYS = {};
+    private static final JsonValue[] NO_VALUES = {};
+
+    private String[] keys = NO_KEYS;
+    private JsonValue[] values = NO_VALUES;
+    private int size = 0;
+    private int[] index;  // slot -> entry position + 1 (0 = empty); null while small or after a removal
+    private Map<String, JsonValue> mapView;
 
     public void put(String key, JsonValue value) {
-        map.put(key, value);
+        int i = indexOf(key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+
+        if (index != null && size * 2 <= index.length) {
+            insertIntoIndex(size - 1);
+        } else if (size > HASH_THRESHOLD) {
+            rebuildIndex();
+        }
+    }
+
+    public JsonValue get(String key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public JsonValue remove(String key) {
+        int i = indexOf(key);
+        if (i < 0) return null;
+        JsonValue old = values[i];
+        removeAt(i);
+        return old;
+    }
+
+    public int size() {
+        return size;
     }
 
+    // Live Map view in document order; changes write through to this object.
     public Map<String, JsonValue> getMap() {
-        return map;
+        if (mapView == null) mapView = new MapView();
+        return mapView;
     }
 
+    // Compact JSON text.
     @Override
     public String toString() {
-        return map.toString();
+        return JsonWriter.toJson(this);
+    }
+
+    // ---------- LOOKUP ----------
+    private int indexOf(Object key) {
+        if (index == null && size > HASH_THRESHOLD) {
+            rebuildIndex();
+        }
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                String k = keys[i];
+                if (k == key || (k != null && k.equals(key))) return i;
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (Objects.equals(keys[i], key)) return i;
+        }
+        return -1;
+    }
+
+    private void removeAt(int i) {
+        int tail = size - i - 1;
+        System.arraycopy(keys, i + 1, keys, i, tail);
+        System.arraycopy(values, i + 1, values, i, tail);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        index = null;  // positions after i moved; rebuilt by the next lookup
+    }
+
+    private void rebuildIndex() {
+        index = new int[Integer.highestOneBit(size * 4 - 1)];
+        for (int i = 0; i < size; i++) {
+            insertIntoIndex(i);
+        }
+    }
+
+    private void insertIntoIndex(int i) {
+        int mask = index.length - 1;
+        int slot = hash(keys[i]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = i + 1;
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    // ---------- MAP VIEW ----------
+    private class MapView extends AbstractMap<String, JsonValue> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public JsonValue get(Object key) {
+            int i = indexOf(key);
+            return i >= 0 ? values[i] : null;
+        }
+
+        @Override
+        public JsonValue put(String key, JsonValue value) {
+            JsonValue old = JsonObject.this.get(key);
+            JsonObject.this.put(key, value);
+            return old;
+        }
+
+        @Override
+        public JsonValue remove(Object key) {
+            int i = indexOf(key);
+            if (i < 0) return null;
+            JsonValue old = values[i];
+            removeAt(i);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+            index = null;
+        }
+
+        @Override
+        public Set<Entry<String, JsonValue>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, JsonValue>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, JsonValue>> {
+        private int next = 0;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, JsonValue> next() {
+            if (next >= size) throw new NoSuchElementException();
+            last = next++;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    private class Entry implements Map.Entry<String, JsonValue> {
+        private final int i;
+
+        Entry(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[i];
+        }
+
+        @Override
+        public JsonValue getValue() {
+            return values[i];
+        }
+
+        @Override
+        public JsonValue setValue(JsonValue value) {
+            JsonValue old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
     }
 }
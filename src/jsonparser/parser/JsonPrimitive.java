@@ -1,5 +1,13 @@
 package jsonparser.parser;
 
+import jsonparser.util.DoubleFormat;
+import jsonparser.util.JsonNumber;
+import jsonparser.writer.JsonWriter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+
 public class JsonPrimitive implements JsonValue {
     private final Object value;
 
@@ -11,8 +19,74 @@ public class JsonPrimitive implements JsonValue {
         return value;
     }
 
+    public boolean isNumber() {
+        return value instanceof Number;
+    }
+
+    // Exact long value; parsed numbers that are plain integers convert without any parsing.
+    public long asLong() {
+        Number n = number();
+        if (n instanceof JsonNumber) return ((JsonNumber) n).asLong();
+        return n.longValue();
+    }
+
+    public double asDouble() {
+        Number n = number();
+        if (n instanceof JsonNumber) return ((JsonNumber) n).asDouble();
+        return n.doubleValue();
+    }
+
+    public BigDecimal asBigDecimal() {
+        Number n = number();
+        if (n instanceof JsonNumber) return ((JsonNumber) n).asBigDecimal();
+        if (n instanceof BigDecimal) return (BigDecimal) n;
+        if (n instanceof BigInteger) return new BigDecimal((BigInteger) n);
+        if (n instanceof Double) return new BigDecimal(DoubleFormat.toString(n.doubleValue()));  // as written
+        if (n instanceof Float) return BigDecimal.valueOf(n.doubleValue());
+        return BigDecimal.valueOf(n.longValue());
+    }
+
+    private Number number() {
+        if (!(value instanceof Number)) {
+            throw new IllegalStateException("Not a number: " + value);
+        }
+        return (Number) value;
+    }
+
+    // Value equality, so primitives that JsonArray wraps on every read still compare equal.
+    // Numbers compare numerically whatever their type (1, 1L and 1.0 are equal, as in JsonNumber).
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JsonPrimitive)) return false;
+        Object other = ((JsonPrimitive) o).value;
+        if (value instanceof Number && other instanceof Number) {
+            if (!isFinite((Number) value) || !isFinite((Number) other)) return value.equals(other);
+            try {
+                return asBigDecimal().compareTo(((JsonPrimitive) o).asBigDecimal()) == 0;
+            } catch (ArithmeticException e) {
+                return value.equals(other);  // a JsonNumber beyond BigDecimal's range
+            }
+        }
+        return Objects.equals(value, other);
+    }
+
+    @Override
+    public int hashCode() {
+        if (value instanceof JsonNumber) return value.hashCode();
+        if (value instanceof Number && isFinite((Number) value)) {
+            return JsonNumber.hashOf(asBigDecimal());  // same hash as the equal JsonNumber
+        }
+        return Objects.hashCode(value);
+    }
+
+    private static boolean isFinite(Number n) {
+        return !(n instanceof Double || n instanceof Float) || Double.isFinite(n.doubleValue());
+    }
+
+    // Compact JSON text.
     @Override
     public String toString() {
-        return String.valueOf(value);
+        return JsonWriter.toJson(this);
     }
 }
@@ -0,0 +1,39 @@
+package jsonparser.parser;
+
+import jsonparser.lexer.Lexer;
+import jsonparser.lexer.LexerException;
+
+import java.io.*;
+
+// Well-formedness checks for inputs that are only accepted or rejected (see Parser.validate()).
+// The grammar, limits and error messages are exactly those of a full parse, but no tree,
+// Token, string or number is created; only a failure allocates. A rejected document throws
+// a LexerException or ParserException, whose getLine() / getColumn() locate the error.
+public class JsonValidator {
+
+    private JsonValidator() {
+    }
+
+    public static void validate(String json) {
+        new Parser(new Lexer(json), json).validate();
+    }
+
+    // Streams through a fixed-size buffer; the caller stays responsible for closing the input.
+    public static void validate(Reader in) {
+        new Parser(new Lexer(in).setKeepLineHistory(false)).validate();
+    }
+
+    // Reads the stream as UTF-8.
+    public static void validate(InputStream in) {
+        new Parser(new Lexer(in).setKeepLineHistory(false)).validate();
+    }
+
+    public static boolean isValid(String json) {
+        try {
+            validate(json);
+            return true;
+        } catch (LexerException | ParserException e) {
+            return false;
+        }
+    }
+}
@@ -7,13 +7,25 @@ import java.util.*;
 
 public class Parser {
 
-    private final List<Token> tokens;
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    private final TokenCursor tokens;
     private final String originalInput;
-    private int index = 0;
+    private final Lexer lexer;    // set when tokens are streamed straight from a Lexer
+    private SymbolTable keys;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxDocumentSize = Long.MAX_VALUE;
+    private long untrackedLength = 0;  // chars of the tokens read so far, when they carry no offsets
+
+    private boolean validateSkipped = true;
+
+    private byte[] stack = new byte[32];  // kinds of the open containers
+    private Projection[] projections = new Projection[32];  // projection of each open container
+    private int depth = 0;
 
     public Parser(List<Token> tokens, String originalInput) {
-        this.tokens = tokens;
-        this.originalInput = originalInput;
+        this(TokenStream.of(tokens), originalInput);
     }
 
     // Convenience constructor (parser without original input)
@@ -21,125 +33,351 @@ public class Parser {
         this(tokens, null);
     }
 
-    // Entry point
+    // Streaming mode: tokens are pulled from the source as the parser needs them, so the full
+    // token list never exists in memory. A Lexer is read through a LexerCursor, without Tokens.
+    // Errors are the ones the list-based path reports: after a grammar error the rest of the
+    // input is still scanned, and a lexer error found there is thrown instead.
+    public Parser(TokenSource source, String originalInput) {
+        this(source instanceof Lexer ? new LexerCursor((Lexer) source) : new TokenStream(source), originalInput);
+    }
+
+    public Parser(TokenSource source) {
+        this(source, null);
+    }
+
+    // Runs over a token tape; the tape's source doubles as the original input for error snippets.
+    public Parser(TokenTape tape) {
+        this(tape.cursor(), tape.getSource());
+    }
+
+    public Parser(TokenCursor tokens, String originalInput) {
+        this.tokens = tokens;
+        this.originalInput = originalInput;
+        this.lexer = tokens instanceof LexerCursor ? ((LexerCursor) tokens).getLexer() : null;
+    }
+
+    // Canonicalizes object keys through the given table (null turns it off). When tokens come
+    // straight from a Lexer the lexer shares the table, so cached keys are never allocated.
+    public void setKeyTable(SymbolTable keys) {
+        this.keys = keys;
+        if (lexer != null) {
+            lexer.setKeyTable(keys);
+        }
+    }
+
+    // Rejects documents nested deeper than this many containers.
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    // Rejects documents longer than this many chars (bytes for a Utf8Lexer), checked per token.
+    // Reading straight from a Lexer the lexer stops at the limit too, so a single long token
+    // is never buffered past it. Tokens without offsets are measured by their text.
+    public void setMaxDocumentSize(long maxDocumentSize) {
+        this.maxDocumentSize = maxDocumentSize;
+        if (lexer != null) {
+            lexer.setMaxLength(maxDocumentSize);
+        }
+    }
+
+    // When off, values left out by a Projection are skipped by scanning for quotes and brackets
+    // instead of being validated. Only takes effect when reading straight from a Lexer.
+    public void setValidateSkipped(boolean validateSkipped) {
+        this.validateSkipped = validateSkipped;
+    }
+
+    // Entry point: builds the JsonValue tree
     public JsonValue parse() {
-        JsonValue value = parseValue();
-        expect(TokenType.EOF);
-        return value;
+        return parse(Projection.ALL);
     }
 
-    // ---------- VALUE ----------
-    private JsonValue parseValue() {
-        Token t = peek();
-
-        switch (t.getType()) {
-            case LEFT_BRACE:
-                return parseObject();
-            case LEFT_BRACKET:
-                return parseArray();
-            case STRING:
-                return new JsonPrimitive(consume().getValue());
-            case NUMBER:
-                return new JsonPrimitive(parseNumberLiteral(consume().getValue()));
-            case TRUE:
-                consume();
-                return new JsonPrimitive(true);
-            case FALSE:
-                consume();
-                return new JsonPrimitive(false);
-            case NULL:
-                consume();
-                return new JsonPrimitive(null);
-            default:
-                throw error("Unexpected token: " + t.getType());
-        }
-    }
-
-    // ---------- OBJECT ----------
-    private JsonObject parseObject() {
-        expect(TokenType.LEFT_BRACE);
-        JsonObject obj = new JsonObject();
-
-        if (peek().getType() == TokenType.RIGHT_BRACE) {
-            consume();
-            return obj;
-        }
-
-        do {
-            Token key = expect(TokenType.STRING);
-            expect(TokenType.COLON);
-            JsonValue value = parseValue();
-            obj.put(key.getValue(), value);
-        } while (tryConsume(TokenType.COMMA));
+    // Builds only the members selected by the projection; everything else is skipped.
+    public JsonValue parse(Projection projection) {
+        TreeBuilder builder = new TreeBuilder();
+        parse(builder, projection);
+        return builder.getResult();
+    }
 
-        expect(TokenType.RIGHT_BRACE);
-        return obj;
+    // Event mode: streams the document into the handler without building a tree
+    public void parse(JsonHandler handler) {
+        parse(handler, Projection.ALL);
     }
 
-    // ---------- ARRAY ----------
-    private JsonArray parseArray() {
-        expect(TokenType.LEFT_BRACKET);
-        JsonArray arr = new JsonArray();
+    public void parse(JsonHandler handler, Projection projection) {
+        depth = 0;  // a parser may be reused after a failed parse
+        try {
+            parseValue(handler, projection);
+            expect(TokenType.EOF);
+        } catch (LexerException e) {
+            throw lexerError(e);
+        } catch (ParserException e) {
+            throw firstError(e);
+        }
+    }
 
-        if (peek().getType() == TokenType.RIGHT_BRACKET) {
-            consume();
-            return arr;
+    // Checks that the input is one well-formed document without building anything: the same
+    // grammar, limits and errors as parse(), but no handler calls. Reading straight from a
+    // Lexer, token text and numbers are not even materialized, so nothing is allocated per token.
+    public void validate() {
+        depth = 0;
+        LexerCursor cursor = tokens instanceof LexerCursor ? (LexerCursor) tokens : null;
+        if (cursor != null) cursor.setMaterialize(false);
+        try {
+            parseValue(null, Projection.ALL);
+            expect(TokenType.EOF);
+        } catch (LexerException e) {
+            throw lexerError(e);
+        } catch (ParserException e) {
+            throw firstError(e);
+        } finally {
+            if (cursor != null) cursor.setMaterialize(true);
         }
+    }
 
-        do {
-            arr.add(parseValue());
-        } while (tryConsume(TokenType.COMMA));
+    // Parses the single value that starts at the current token and stops right after it,
+    // so a value embedded in a larger document can be read on its own.
+    public JsonValue readValue() {
+        TreeBuilder builder = new TreeBuilder();
+        readValue(builder);
+        return builder.getResult();
+    }
 
-        expect(TokenType.RIGHT_BRACKET);
-        return arr;
+    public void readValue(JsonHandler handler) {
+        try {
+            parseValue(handler, Projection.ALL);
+        } catch (LexerException e) {
+            throw lexerError(e);
+        }
     }
 
-    // ---------- NUMBER ----------
-    private Double parseNumberLiteral(String num) {
-        return Double.valueOf(num);
+    // ---------- VALUE ----------
+    // Iterative: open containers live on an explicit stack instead of the Java call stack,
+    // so nesting depth is only bounded by maxDepth and memory.
+    // A null handler only validates: token values are never read.
+    private void parseValue(JsonHandler handler, Projection projection) {
+        int base = depth;
+        Projection current = projection;  // projection of the value about to be parsed, null to skip it
+
+        while (true) {
+            if (current == null) {
+                skipValue();
+            } else {
+                TokenType type = peek();
+
+                switch (type) {
+                    case LEFT_BRACE:
+                        push(OBJECT, current);
+                        advance();
+                        if (handler != null) handler.startObject();
+                        if (peek() != TokenType.RIGHT_BRACE) {
+                            current = readKey(handler, current);
+                            continue; // parse the first member's value
+                        }
+                        advance();
+                        depth--;
+                        if (handler != null) handler.endObject();
+                        break;
+                    case LEFT_BRACKET:
+                        push(ARRAY, current);
+                        advance();
+                        if (handler != null) handler.startArray();
+                        if (peek() != TokenType.RIGHT_BRACKET) {
+                            continue; // parse the first element
+                        }
+                        advance();
+                        depth--;
+                        if (handler != null) handler.endArray();
+                        break;
+                    case STRING:
+                        if (handler != null) handler.stringValue(tokens.value());
+                        advance();
+                        break;
+                    case NUMBER:
+                        if (handler != null) handler.numberValue(tokens.number());
+                        advance();
+                        break;
+                    case TRUE:
+                        advance();
+                        if (handler != null) handler.booleanValue(true);
+                        break;
+                    case FALSE:
+                        advance();
+                        if (handler != null) handler.booleanValue(false);
+                        break;
+                    case NULL:
+                        advance();
+                        if (handler != null) handler.nullValue();
+                        break;
+                    default:
+                        throw error("Unexpected token: " + type);
+                }
+            }
+
+            // A value is complete: close every container that ends here, or move on to the
+            // next member / element of the innermost one.
+            while (true) {
+                if (depth == base) return;
+
+                if (stack[depth - 1] == OBJECT) {
+                    if (tryConsume(TokenType.COMMA)) {
+                        current = readKey(handler, projections[depth - 1]);
+                        break;
+                    }
+                    expect(TokenType.RIGHT_BRACE);
+                    depth--;
+                    if (handler != null) handler.endObject();
+                } else {
+                    if (tryConsume(TokenType.COMMA)) {
+                        current = projections[depth - 1];
+                        break;
+                    }
+                    expect(TokenType.RIGHT_BRACKET);
+                    depth--;
+                    if (handler != null) handler.endArray();
+                }
+            }
+        }
+    }
+
+    // Reads a member's key and colon and returns the projection of its value (parsed next),
+    // or null if the member is left out.
+    private Projection readKey(JsonHandler handler, Projection projection) {
+        if (handler == null) {
+            expect(TokenType.STRING);
+            expect(TokenType.COLON);
+            return projection;
+        }
+        String key = expectKey();
+        expect(TokenType.COLON);
+        Projection child = projection.child(key);
+        if (child != null) {
+            handler.key(key);
+        }
+        return child;
+    }
+
+    // Moves past a value that was left out by the projection.
+    private void skipValue() {
+        if (!(tokens instanceof LexerCursor)) {
+            parseValue(null, Projection.ALL);
+            return;
+        }
+
+        LexerCursor cursor = (LexerCursor) tokens;
+        if (!validateSkipped) {
+            cursor.skipValue();
+            return;
+        }
+        cursor.setMaterialize(false);
+        try {
+            parseValue(null, Projection.ALL);
+        } finally {
+            cursor.setMaterialize(true);
+        }
+    }
+
+    private void push(byte container, Projection projection) {
+        if (depth >= maxDepth) {
+            throw error("Maximum nesting depth of " + maxDepth + " exceeded");
+        }
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            projections = Arrays.copyOf(projections, depth * 2);
+        }
+        projections[depth] = projection;
+        stack[depth++] = container;
     }
 
     // ---------- TOKEN HELPERS ----------
-    private Token consume() {
-        return tokens.get(index++);
+    // Moves past the current token, which must not end beyond the size limit.
+    private void advance() {
+        if (maxDocumentSize != Long.MAX_VALUE) {
+            long end = tokens.offset();
+            if (end < 0) {
+                end = untrackedLength += tokenLength();
+            }
+            if (end > maxDocumentSize) {
+                throw error("Document exceeds maximum size of " + maxDocumentSize);
+            }
+        }
+        tokens.advance();
+    }
+
+    // Chars the current token takes at least (escapes and whitespace aside), for tokens built
+    // without offsets.
+    private long tokenLength() {
+        switch (peek()) {
+            case STRING: return tokens.value().length() + 2;
+            case NUMBER: return tokens.value().length();
+            case TRUE: case NULL: return 4;
+            case FALSE: return 5;
+            case EOF: return 0;
+            default: return 1;
+        }
+    }
+
+    private void expect(TokenType type) {
+        expectType(type);
+        advance();
     }
 
-    private Token expect(TokenType type) {
-        Token t = peek();
-        if (t.getType() != type) {
-            throw error("Expected " + type + " but got " + t.getType());
+    private void expectType(TokenType type) {
+        TokenType actual = peek();
+        if (actual != type) {
+            throw error("Expected " + type + " but got " + actual);
         }
-        return consume();
+    }
+
+    private String expectKey() {
+        expectType(TokenType.STRING);
+        // a sharing lexer has already interned the key
+        String key = keys == null || lexer != null ? tokens.value() : tokens.key(keys);
+        advance();
+        return key;
     }
 
     private boolean tryConsume(TokenType type) {
-        if (peek().getType() == type) {
-            consume();
+        if (peek() == type) {
+            advance();
             return true;
         }
         return false;
     }
 
-    private Token peek() {
-        return tokens.get(index);
+    private TokenType peek() {
+        return tokens.type();
     }
 
     // ---------- ERROR HANDLING ----------
     private ParserException error(String message) {
-        Token t = peek();
-        String snippet = buildSnippet(t.getLine());
-
-        String fullMessage = message + " at " + t.getLine() + ":" + t.getColumn();
-
-        return new ParserException(fullMessage, t.getLine(), t.getColumn(), snippet);
+        return ParserException.at(message, tokens.line(), tokens.column(), originalInput);
     }
 
-    private String buildSnippet(int errorLine) {
-        if (originalInput == null) return null;
-
-        String[] lines = originalInput.split("\n");
-        if (errorLine <= 0 || errorLine > lines.length) return null;
+    // A token list is lexed in full before it is parsed, so there a lexer error anywhere in the
+    // input wins over a grammar error. To report the same error when streaming, the tokens after
+    // a grammar error are scanned to EOF; a lexer error among them replaces the grammar error.
+    // Not done once the size limit is hit, since nothing past it may be read.
+    private RuntimeException firstError(ParserException e) {
+        if (lexer != null && lexer.exceedsMaxLength()) return e;
+        LexerCursor cursor = tokens instanceof LexerCursor ? (LexerCursor) tokens : null;
+        if (cursor != null) cursor.setMaterialize(false);
+        try {
+            while (tokens.type() != TokenType.EOF) {
+                tokens.advance();
+            }
+        } catch (LexerException later) {
+            return lexer != null && lexer.exceedsMaxLength() ? e : later;
+        } finally {
+            if (cursor != null) cursor.setMaterialize(true);
+        }
+        return e;
+    }
 
-        return lines[errorLine - 1];
+    // A lexer that stopped at the size limit fails the way advance() does; other lexer
+    // errors pass through unchanged.
+    private RuntimeException lexerError(LexerException e) {
+        if (lexer == null || !lexer.exceedsMaxLength()) return e;
+        return ParserException.at("Document exceeds maximum size of " + maxDocumentSize,
+                e.getLine(), e.getColumn(), originalInput);
     }
 }
@@ -1,5 +1,7 @@
 package jsonparser.parser;
 
+import jsonparser.util.LineIndex;
+
 public class ParserException extends RuntimeException {
 
     private final int line;
@@ -13,6 +15,44 @@ public class ParserException extends RuntimeException {
         this.snippet = snippet;
     }
 
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    // Error at line:column of the given source (may be null), quoting the offending line.
+    public static ParserException at(String message, int line, int column, String source) {
+        String fullMessage = message + " at " + line + ":" + column;
+        return new ParserException(fullMessage, line, column, snippet(source, line));
+    }
+
+    // Text of the error line, looked up through a line index instead of splitting the whole input.
+    // Trailing empty lines yield no snippet, matching source.split("\n").
+    private static String snippet(String source, int line) {
+        if (source == null || line <= 0) return null;
+
+        int start = (int) new LineIndex(source).lineStart(line);
+        if (start < 0) return null;
+
+        int end = source.indexOf('\n', start);
+        if (end < 0) end = source.length();
+
+        if (end == start && source.indexOf('\n') >= 0 && onlyNewlinesFrom(source, start)) {
+            return null;
+        }
+        return source.substring(start, end);
+    }
+
+    private static boolean onlyNewlinesFrom(String source, int start) {
+        for (int i = start; i < source.length(); i++) {
+            if (source.charAt(i) != '\n') return false;
+        }
+        return true;
+    }
+
     @Override
     public String getMessage() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,64 @@
+package jsonparser.parser;
+
+import java.util.*;
+
+// Tree of the object members a caller needs. Parser.parse(Projection) builds only these
+// members; every other member is skipped without being materialized. A projection applies
+// to every element of an array it meets, and scalars are kept as they are.
+//
+//   Projection.of("id", "user.name", "events.type")
+public class Projection {
+    // Selects the whole subtree.
+    public static final Projection ALL = new Projection();
+
+    private final Map<String, Projection> fields = new HashMap<>();
+
+    // Projection from dotted member paths; a path that ends at a member selects its whole subtree.
+    public static Projection of(String... paths) {
+        Projection root = new Projection();
+        for (String path : paths) {
+            Projection node = root;
+            String[] keys = path.split("\\.", -1);
+            for (int i = 0; i < keys.length - 1 && node != ALL; i++) {
+                Projection child = node.fields.get(keys[i]);
+                if (child == null) {
+                    child = new Projection();
+                    node.fields.put(keys[i], child);
+                }
+                node = child;
+            }
+            if (node != ALL) {
+                node.fields.put(keys[keys.length - 1], ALL);
+            }
+        }
+        return root;
+    }
+
+    // Selects the whole subtree of the member.
+    public Projection include(String key) {
+        return include(key, ALL);
+    }
+
+    // Selects the member, narrowed by the given projection.
+    public Projection include(String key, Projection child) {
+        if (this == ALL) {
+            throw new UnsupportedOperationException("Projection.ALL cannot be changed");
+        }
+        fields.put(key, child);
+        return this;
+    }
+
+    // Projection of the member's value, or null if the member is left out.
+    public Projection child(String key) {
+        return this == ALL ? ALL : fields.get(key);
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    @Override
+    public String toString() {
+        return this == ALL ? "*" : fields.toString();
+    }
+}
@@ -0,0 +1,282 @@
+package jsonparser.parser;
+
+import jsonparser.lexer.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Parses UTF-8 input pushed in chunks, for event-loop code that must never block:
+//
+//   PushParser parser = new PushParser();
+//   parser.feed(chunk);   // as often as chunks arrive; returns once the chunk is consumed
+//   parser.endOfInput();
+//   JsonValue value = parser.getResult();
+//
+// The grammar runs as a state machine over an explicit container stack, so parsing simply
+// stops wherever the input runs out (even inside a token, see PushLexer) and picks up again on
+// the next feed(). Events reach the handler as soon as their tokens are complete, and errors
+// are thrown from the feed() or endOfInput() call that reveals them, with the same messages
+// and positions as Parser over a Utf8Lexer.
+public class PushParser {
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    // What the next token has to be.
+    private static final int VALUE = 0;        // a value (document root, after ':' or after ',' in an array)
+    private static final int FIRST_KEY = 1;    // a key or '}' right after '{'
+    private static final int KEY = 2;          // a key after ',' in an object
+    private static final int COLON = 3;        // ':' after a key
+    private static final int FIRST_VALUE = 4;  // a value or ']' right after '['
+    private static final int AFTER_VALUE = 5;  // ',' or the end of the innermost container (EOF at the root)
+    private static final int DONE = 6;
+    private static final int FAILED = 7;
+
+    private final PushLexer lexer = new PushLexer();
+    private final JsonHandler handler;
+    private final TreeBuilder builder;  // set when the parser builds the tree itself
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxDocumentSize = Long.MAX_VALUE;
+
+    private int state = VALUE;
+    private byte[] stack = new byte[32];
+    private int depth = 0;
+    private String pendingKey;
+
+    // Builds a JsonValue, available from getResult() once the input has ended.
+    public PushParser() {
+        this(new TreeBuilder());
+    }
+
+    // Streams the events into the handler.
+    public PushParser(JsonHandler handler) {
+        this.handler = handler;
+        this.builder = handler instanceof TreeBuilder ? (TreeBuilder) handler : null;
+    }
+
+    // See Parser.setMaxDepth.
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    // See Parser.setMaxDocumentSize (in bytes).
+    public void setMaxDocumentSize(long maxDocumentSize) {
+        this.maxDocumentSize = maxDocumentSize;
+        lexer.setMaxLength(maxDocumentSize);
+    }
+
+    // Parses as far as the bytes allow. The chunk is fully consumed and may be reused right away.
+    public void feed(ByteBuffer chunk) {
+        checkOpen();
+        lexer.feed(chunk);
+        run();
+    }
+
+    public void feed(byte[] bytes, int offset, int length) {
+        checkOpen();
+        lexer.feed(bytes, offset, length);
+        run();
+    }
+
+    // Finishes the document; throws if it is incomplete.
+    public void endOfInput() {
+        checkOpen();
+        lexer.endOfInput();
+        run();
+    }
+
+    // True once the whole document, end of input included, has been parsed.
+    public boolean isDone() {
+        return state == DONE;
+    }
+
+    // The parsed value. Only for a parser that builds the tree, once isDone().
+    public JsonValue getResult() {
+        if (builder == null) {
+            throw new IllegalStateException("Events went to a handler, there is no tree");
+        }
+        if (state != DONE) {
+            throw new IllegalStateException("The document is not complete yet");
+        }
+        return builder.getResult();
+    }
+
+    private void checkOpen() {
+        if (state == FAILED) {
+            throw new IllegalStateException("The parser has already failed");
+        }
+        if (state == DONE) {
+            throw new IllegalStateException("The document is already complete");
+        }
+    }
+
+    // Consumes every token that is complete; an error leaves the parser failed.
+    private void run() {
+        try {
+            Token token;
+            while (state != DONE && (token = lexer.nextToken()) != null) {
+                accept(token);
+            }
+        } catch (LexerException e) {
+            state = FAILED;
+            throw lexerError(e);
+        } catch (ParserException e) {
+            state = FAILED;
+            throw e;
+        }
+    }
+
+    // ---------- GRAMMAR ----------
+    private void accept(Token token) {
+        TokenType type = token.getType();
+        switch (state) {
+            case FIRST_KEY:
+                if (type == TokenType.RIGHT_BRACE) {
+                    consumed(token);
+                    close();
+                    return;
+                }
+                key(token);
+                return;
+            case KEY:
+                key(token);
+                return;
+            case COLON:
+                if (type != TokenType.COLON) {
+                    throw error("Expected COLON but got " + type, token);
+                }
+                consumed(token);
+                handler.key(pendingKey);
+                pendingKey = null;
+                state = VALUE;
+                return;
+            case FIRST_VALUE:
+                if (type == TokenType.RIGHT_BRACKET) {
+                    consumed(token);
+                    close();
+                    return;
+                }
+                value(token);
+                return;
+            case VALUE:
+                value(token);
+                return;
+            case AFTER_VALUE:
+                afterValue(token);
+                return;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void key(Token token) {
+        if (token.getType() != TokenType.STRING) {
+            throw error("Expected STRING but got " + token.getType(), token);
+        }
+        pendingKey = token.getValue();
+        consumed(token);
+        state = COLON;
+    }
+
+    private void value(Token token) {
+        switch (token.getType()) {
+            case LEFT_BRACE:
+                push(OBJECT, token);
+                consumed(token);
+                handler.startObject();
+                state = FIRST_KEY;
+                return;
+            case LEFT_BRACKET:
+                push(ARRAY, token);
+                consumed(token);
+                handler.startArray();
+                state = FIRST_VALUE;
+                return;
+            case STRING:
+                handler.stringValue(token.getValue());
+                consumed(token);
+                break;
+            case NUMBER:
+                handler.numberValue(token.getNumber());
+                consumed(token);
+                break;
+            case TRUE:
+                consumed(token);
+                handler.booleanValue(true);
+                break;
+            case FALSE:
+                consumed(token);
+                handler.booleanValue(false);
+                break;
+            case NULL:
+                consumed(token);
+                handler.nullValue();
+                break;
+            default:
+                throw error("Unexpected token: " + token.getType(), token);
+        }
+        state = AFTER_VALUE;
+    }
+
+    private void afterValue(Token token) {
+        TokenType type = token.getType();
+        if (depth == 0) {
+            if (type != TokenType.EOF) {
+                throw error("Expected EOF but got " + type, token);
+            }
+            consumed(token);
+            state = DONE;
+            return;
+        }
+
+        boolean object = stack[depth - 1] == OBJECT;
+        if (type == TokenType.COMMA) {
+            consumed(token);
+            state = object ? KEY : VALUE;
+            return;
+        }
+        TokenType end = object ? TokenType.RIGHT_BRACE : TokenType.RIGHT_BRACKET;
+        if (type != end) {
+            throw error("Expected " + end + " but got " + type, token);
+        }
+        consumed(token);
+        close();
+    }
+
+    // Moves past a token, which must not end beyond the size limit (where Parser advances).
+    private void consumed(Token token) {
+        if (maxDocumentSize != Long.MAX_VALUE && token.getOffset() > maxDocumentSize) {
+            throw error("Document exceeds maximum size of " + maxDocumentSize, token);
+        }
+    }
+
+    private void push(byte container, Token token) {
+        if (depth >= maxDepth) {
+            throw error("Maximum nesting depth of " + maxDepth + " exceeded", token);
+        }
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = container;
+    }
+
+    // Ends the innermost container.
+    private void close() {
+        if (stack[--depth] == OBJECT) {
+            handler.endObject();
+        } else {
+            handler.endArray();
+        }
+        state = AFTER_VALUE;
+    }
+
+    private ParserException error(String message, Token token) {
+        return ParserException.at(message, token.getLine(), token.getColumn(), null);
+    }
+
+    // A lexer that stopped at the size limit fails the way consumed() does, as in Parser.
+    private RuntimeException lexerError(LexerException e) {
+        if (!lexer.exceedsMaxLength()) return e;
+        return ParserException.at("Document exceeds maximum size of " + maxDocumentSize, e.getLine(), e.getColumn(), null);
+    }
+}
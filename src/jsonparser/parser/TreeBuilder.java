@@ -0,0 +1,78 @@
+package jsonparser.parser;
+
+import java.util.*;
+
+// JsonHandler that assembles the JsonObject / JsonArray / JsonPrimitive tree.
+public class TreeBuilder implements JsonHandler {
+    private final List<JsonValue> stack = new ArrayList<>();
+    private String pendingKey;
+    private JsonValue result;
+
+    @Override
+    public void startObject() {
+        JsonObject obj = new JsonObject();
+        attach(obj);
+        stack.add(obj);
+    }
+
+    @Override
+    public void key(String key) {
+        pendingKey = key;
+    }
+
+    @Override
+    public void endObject() {
+        stack.remove(stack.size() - 1);
+    }
+
+    @Override
+    public void startArray() {
+        JsonArray arr = new JsonArray();
+        attach(arr);
+        stack.add(arr);
+    }
+
+    @Override
+    public void endArray() {
+        stack.remove(stack.size() - 1);
+    }
+
+    @Override
+    public void stringValue(String value) {
+        attach(new JsonPrimitive(value));
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        attach(new JsonPrimitive(value));
+    }
+
+    @Override
+    public void booleanValue(boolean value) {
+        attach(new JsonPrimitive(value));
+    }
+
+    @Override
+    public void nullValue() {
+        attach(new JsonPrimitive(null));
+    }
+
+    // The completed root value (null until a whole value has been received).
+    public JsonValue getResult() {
+        return result;
+    }
+
+    private void attach(JsonValue value) {
+        if (stack.isEmpty()) {
+            result = value;
+            return;
+        }
+
+        JsonValue parent = stack.get(stack.size() - 1);
+        if (parent instanceof JsonObject) {
+            ((JsonObject) parent).put(pendingKey, value);
+        } else {
+            ((JsonArray) parent).add(value);
+        }
+    }
+}
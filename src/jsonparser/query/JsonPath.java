@@ -0,0 +1,238 @@
+package jsonparser.query;
+
+import jsonparser.parser.JsonValue;
+
+import java.io.Reader;
+import java.util.*;
+
+// A compiled path to the values of interest in a document. Two notations are accepted:
+//
+//   JSON Pointer   /user/id   /events/*/type   (~0 and ~1 escape '~' and '/')
+//   JSONPath       $.user.id  $.events[*].type  $['odd key'][0]
+//
+// '*' matches every member of an object or element of an array (in a pointer it is an
+// extension of RFC 6901). A numeric pointer segment matches an array index as well as a
+// member with that name; in JSONPath, [0] only matches an index and ['0'] only a name.
+public class JsonPath {
+    private final String expression;
+    private final String[] names;   // member name per step, null if the step can't match a member
+    private final int[] indexes;    // array index per step, -1 if the step can't match an element
+    private final boolean[] wildcards;
+    private final boolean definite;
+
+    private JsonPath(String expression, List<String> names, List<Integer> indexes, List<Boolean> wildcards) {
+        this.expression = expression;
+        int n = names.size();
+        this.names = names.toArray(new String[n]);
+        this.indexes = new int[n];
+        this.wildcards = new boolean[n];
+        boolean definite = true;
+        for (int i = 0; i < n; i++) {
+            this.indexes[i] = indexes.get(i);
+            this.wildcards[i] = wildcards.get(i);
+            if (this.wildcards[i]) definite = false;
+        }
+        this.definite = definite;
+    }
+
+    public static JsonPath compile(String expression) {
+        if (expression.isEmpty() || expression.charAt(0) == '/') {
+            return compilePointer(expression);
+        }
+        if (expression.charAt(0) == '$') {
+            return compileJsonPath(expression);
+        }
+        throw invalid(expression, "must start with '/' or '$'");
+    }
+
+    // Values matched by this path, in document order.
+    public List<JsonValue> select(String json) {
+        return new PathQuery(this).select(json).get(this);
+    }
+
+    public List<JsonValue> select(Reader json) {
+        return new PathQuery(this).select(json).get(this);
+    }
+
+    // Number of steps (0 selects the whole document).
+    public int length() {
+        return names.length;
+    }
+
+    // True if the path has no wildcards, so it can match at most one value.
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    boolean isWildcard(int step) {
+        return wildcards[step];
+    }
+
+    // Member name the step matches, or null.
+    String name(int step) {
+        return names[step];
+    }
+
+    // Array index the step matches, or -1.
+    int index(int step) {
+        return indexes[step];
+    }
+
+    boolean matchesKey(int step, String key) {
+        return wildcards[step] || key.equals(names[step]);
+    }
+
+    boolean matchesIndex(int step, int index) {
+        return wildcards[step] || index == indexes[step];
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // ---------- JSON POINTER ----------
+    private static JsonPath compilePointer(String expression) {
+        List<String> names = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Boolean> wildcards = new ArrayList<>();
+
+        int start = 1;
+        while (start <= expression.length()) {
+            int end = expression.indexOf('/', start);
+            if (end < 0) end = expression.length();
+            String segment = unescapePointer(expression, expression.substring(start, end));
+
+            if (segment.equals("*")) {
+                names.add(null);
+                indexes.add(-1);
+                wildcards.add(true);
+            } else {
+                names.add(segment);
+                indexes.add(arrayIndex(segment));
+                wildcards.add(false);
+            }
+            start = end + 1;
+        }
+        return new JsonPath(expression, names, indexes, wildcards);
+    }
+
+    private static String unescapePointer(String expression, String segment) {
+        if (segment.indexOf('~') < 0) return segment;
+
+        StringBuilder sb = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c != '~') {
+                sb.append(c);
+                continue;
+            }
+            char next = i + 1 < segment.length() ? segment.charAt(++i) : '\0';
+            if (next == '0') {
+                sb.append('~');
+            } else if (next == '1') {
+                sb.append('/');
+            } else {
+                throw invalid(expression, "'~' must be followed by 0 or 1");
+            }
+        }
+        return sb.toString();
+    }
+
+    // Index denoted by a pointer segment, or -1 if it isn't one ("0", "1", ... without leading zeros).
+    private static int arrayIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) return -1;
+        if (segment.length() > 1 && segment.charAt(0) == '0') return -1;
+        int index = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    // ---------- JSONPATH ----------
+    private static JsonPath compileJsonPath(String expression) {
+        List<String> names = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Boolean> wildcards = new ArrayList<>();
+
+        int i = 1;
+        int n = expression.length();
+        while (i < n) {
+            char c = expression.charAt(i);
+
+            if (c == '.') {
+                i++;
+                if (i < n && expression.charAt(i) == '.') {
+                    throw invalid(expression, "recursive descent '..' is not supported");
+                }
+                if (i < n && expression.charAt(i) == '*') {
+                    names.add(null);
+                    indexes.add(-1);
+                    wildcards.add(true);
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < n && isNameChar(expression.charAt(i))) i++;
+                if (i == start) {
+                    throw invalid(expression, "expected a member name at index " + start);
+                }
+                names.add(expression.substring(start, i));
+                indexes.add(-1);
+                wildcards.add(false);
+            } else if (c == '[') {
+                i++;
+                char first = i < n ? expression.charAt(i) : '\0';
+                if (first == '*') {
+                    names.add(null);
+                    indexes.add(-1);
+                    wildcards.add(true);
+                    i++;
+                } else if (first == '\'' || first == '"') {
+                    StringBuilder name = new StringBuilder();
+                    i++;
+                    while (i < n && expression.charAt(i) != first) {
+                        char ch = expression.charAt(i++);
+                        if (ch == '\\' && i < n) ch = expression.charAt(i++);
+                        name.append(ch);
+                    }
+                    if (i == n) {
+                        throw invalid(expression, "unterminated quoted name");
+                    }
+                    i++;
+                    names.add(name.toString());
+                    indexes.add(-1);
+                    wildcards.add(false);
+                } else {
+                    int start = i;
+                    while (i < n && expression.charAt(i) >= '0' && expression.charAt(i) <= '9') i++;
+                    int index = i == start ? -1 : arrayIndex(expression.substring(start, i));
+                    if (index < 0) {
+                        throw invalid(expression, "expected an index, '*' or a quoted name at index " + start);
+                    }
+                    names.add(null);
+                    indexes.add(index);
+                    wildcards.add(false);
+                }
+                if (i >= n || expression.charAt(i) != ']') {
+                    throw invalid(expression, "expected ']' at index " + i);
+                }
+                i++;
+            } else {
+                throw invalid(expression, "unexpected '" + c + "' at index " + i);
+            }
+        }
+        return new JsonPath(expression, names, indexes, wildcards);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '-';
+    }
+
+    private static IllegalArgumentException invalid(String expression, String reason) {
+        return new IllegalArgumentException("Invalid path '" + expression + "': " + reason);
+    }
+}
@@ -0,0 +1,240 @@
+package jsonparser.query;
+
+import jsonparser.lexer.*;
+import jsonparser.parser.*;
+
+import java.io.*;
+import java.util.*;
+
+// Evaluates a set of JsonPaths in a single pass over the document, while it is being lexed.
+// Only the containers on the way to a match are walked token by token; every other value is
+// skipped by scanning for quotes and brackets, without building Tokens or JsonValues, and is
+// therefore not validated. Matched values are parsed (and validated) in full.
+//
+// A definite path (no wildcards) yields at most its first match. Once every path is definite
+// and matched, the rest of the document is not read at all.
+public class PathQuery {
+    private final JsonPath[] paths;
+
+    public PathQuery(JsonPath... paths) {
+        this.paths = paths.clone();
+    }
+
+    public static PathQuery of(String... expressions) {
+        JsonPath[] paths = new JsonPath[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            paths[i] = JsonPath.compile(expressions[i]);
+        }
+        return new PathQuery(paths);
+    }
+
+    public Map<JsonPath, List<JsonValue>> select(String json) {
+        return select(new Lexer(json), json);
+    }
+
+    // The caller stays responsible for closing the reader.
+    public Map<JsonPath, List<JsonValue>> select(Reader json) {
+        return select(new Lexer(json).setKeepLineHistory(false), null);
+    }
+
+    public Map<JsonPath, List<JsonValue>> select(InputStream json) {
+        return select(new Lexer(json).setKeepLineHistory(false), null);
+    }
+
+    // Matches per path, in the order the paths were given; values appear in document order.
+    // The source, if known, is quoted in error messages.
+    public Map<JsonPath, List<JsonValue>> select(Lexer lexer, String source) {
+        return new Evaluation(lexer, source).run();
+    }
+
+    public List<JsonPath> getPaths() {
+        return List.of(paths);
+    }
+
+    // State of one select() call.
+    private class Evaluation {
+        private final LexerCursor cursor;
+        private final Parser parser;
+        private final String source;
+        private final List<List<JsonValue>> results = new ArrayList<>();
+        private final boolean[] matched;
+        private int pending;         // definite paths without a match, or -1 if some path has a wildcard
+        private boolean done;
+
+        Evaluation(Lexer lexer, String source) {
+            this.cursor = new LexerCursor(lexer);
+            this.parser = new Parser(cursor, source);
+            this.source = source;
+            this.matched = new boolean[paths.length];
+            for (JsonPath path : paths) {
+                results.add(new ArrayList<>());
+                if (pending >= 0) {
+                    pending = path.isDefinite() ? pending + 1 : -1;
+                }
+            }
+        }
+
+        Map<JsonPath, List<JsonValue>> run() {
+            int[] all = new int[paths.length];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+
+            if (all.length > 0) {
+                visit(all, all.length, 0);
+            } else {
+                cursor.skipValue();
+            }
+            if (!done) {
+                expect(TokenType.EOF);
+            }
+
+            Map<JsonPath, List<JsonValue>> map = new LinkedHashMap<>();
+            for (int i = 0; i < paths.length; i++) {
+                map.put(paths[i], results.get(i));
+            }
+            return map;
+        }
+
+        // The cursor is at a value that the first 'count' paths of 'active' have reached after 'depth' steps.
+        // Recursion is bounded by the longest path; matched values are parsed iteratively.
+        private void visit(int[] active, int count, int depth) {
+            for (int i = 0; i < count; i++) {
+                if (paths[active[i]].length() == depth) {
+                    collect(parser.readValue(), active, count, depth);
+                    return;
+                }
+            }
+
+            TokenType type = cursor.type();
+            switch (type) {
+                case LEFT_BRACE:
+                    visitObject(active, count, depth);
+                    break;
+                case LEFT_BRACKET:
+                    visitArray(active, count, depth);
+                    break;
+                case STRING: case NUMBER: case TRUE: case FALSE: case NULL:
+                    cursor.advance(); // a scalar has nothing to descend into
+                    break;
+                default:
+                    throw error("Unexpected token: " + type);
+            }
+        }
+
+        private void visitObject(int[] active, int count, int depth) {
+            cursor.advance();
+            if (cursor.type() == TokenType.RIGHT_BRACE) {
+                cursor.advance();
+                return;
+            }
+
+            int[] next = new int[count];
+            while (true) {
+                String key = expect(TokenType.STRING);
+                expect(TokenType.COLON);
+
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    int p = active[i];
+                    if (!matched[p] && paths[p].matchesKey(depth, key)) next[n++] = p;
+                }
+                if (n == 0) {
+                    cursor.skipValue();
+                } else {
+                    visit(next, n, depth + 1);
+                    if (done) return;
+                }
+
+                if (cursor.type() == TokenType.COMMA) {
+                    cursor.advance();
+                    continue;
+                }
+                expect(TokenType.RIGHT_BRACE);
+                return;
+            }
+        }
+
+        private void visitArray(int[] active, int count, int depth) {
+            cursor.advance();
+            if (cursor.type() == TokenType.RIGHT_BRACKET) {
+                cursor.advance();
+                return;
+            }
+
+            int[] next = new int[count];
+            for (int index = 0; ; index++) {
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    int p = active[i];
+                    if (!matched[p] && paths[p].matchesIndex(depth, index)) next[n++] = p;
+                }
+                if (n == 0) {
+                    cursor.skipValue();
+                } else {
+                    visit(next, n, depth + 1);
+                    if (done) return;
+                }
+
+                if (cursor.type() == TokenType.COMMA) {
+                    cursor.advance();
+                    continue;
+                }
+                expect(TokenType.RIGHT_BRACKET);
+                return;
+            }
+        }
+
+        // Records a parsed value for the paths ending at it, and resolves the longer ones inside it.
+        private void collect(JsonValue value, int[] active, int count, int depth) {
+            for (int i = 0; i < count; i++) {
+                int p = active[i];
+                List<JsonValue> out = results.get(p);
+                resolve(value, paths[p], depth, out);
+                if (paths[p].isDefinite() && !out.isEmpty()) {
+                    matched[p] = true;
+                    if (--pending == 0) done = true;
+                }
+            }
+        }
+
+        private void resolve(JsonValue value, JsonPath path, int step, List<JsonValue> out) {
+            if (step == path.length()) {
+                out.add(value);
+                return;
+            }
+
+            if (value instanceof JsonObject) {
+                JsonObject obj = (JsonObject) value;
+                if (path.isWildcard(step)) {
+                    for (JsonValue member : obj.getMap().values()) {
+                        resolve(member, path, step + 1, out);
+                    }
+                } else if (path.name(step) != null && obj.containsKey(path.name(step))) {
+                    resolve(obj.get(path.name(step)), path, step + 1, out);
+                }
+            } else if (value instanceof JsonArray) {
+                JsonArray arr = (JsonArray) value;
+                if (path.isWildcard(step)) {
+                    for (int i = 0; i < arr.size(); i++) {
+                        resolve(arr.get(i), path, step + 1, out);
+                    }
+                } else if (path.index(step) >= 0 && path.index(step) < arr.size()) {
+                    resolve(arr.get(path.index(step)), path, step + 1, out);
+                }
+            }
+        }
+
+        private String expect(TokenType type) {
+            TokenType actual = cursor.type();
+            if (actual != type) {
+                throw error("Expected " + type + " but got " + actual);
+            }
+            String value = cursor.value();
+            cursor.advance();
+            return value;
+        }
+
+        private ParserException error(String message) {
+            return ParserException.at(message, cursor.line(), cursor.column(), source);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package jsonparser.transform;
+
+import jsonparser.parser.JsonHandler;
+
+import java.util.*;
+
+// Removes the members with the given keys, at any depth, together with their values.
+public class DropFields extends JsonFilter {
+    private final Set<String> keys;
+
+    public DropFields(JsonHandler next, Collection<String> keys) {
+        super(next);
+        this.keys = new HashSet<>(keys);
+    }
+
+    @Override
+    public void key(String key) {
+        if (!isSkipping() && keys.contains(key)) {
+            skipValue();
+            return;
+        }
+        super.key(key);
+    }
+}
@@ -0,0 +1,112 @@
+package jsonparser.transform;
+
+import jsonparser.parser.JsonHandler;
+
+// A JsonHandler stage that passes every event on to the next handler. Subclasses override the
+// events they change and call skipValue() to drop the value that comes next, subtree and all,
+// without having to track its nesting themselves.
+public class JsonFilter implements JsonHandler {
+    protected final JsonHandler next;
+
+    private boolean skipNext;  // the next value is dropped
+    private int skipDepth;     // containers open inside the value being dropped
+
+    public JsonFilter(JsonHandler next) {
+        this.next = next;
+    }
+
+    // Drops the next value instead of passing it on.
+    protected void skipValue() {
+        skipNext = true;
+    }
+
+    // True while the events of a dropped value are arriving (or one is about to start).
+    protected boolean isSkipping() {
+        return skipNext || skipDepth > 0;
+    }
+
+    @Override
+    public void startObject() {
+        if (enterSkipped()) return;
+        next.startObject();
+    }
+
+    @Override
+    public void key(String key) {
+        if (isSkipping()) return;
+        next.key(key);
+    }
+
+    @Override
+    public void endObject() {
+        if (exitSkipped()) return;
+        next.endObject();
+    }
+
+    @Override
+    public void startArray() {
+        if (enterSkipped()) return;
+        next.startArray();
+    }
+
+    @Override
+    public void endArray() {
+        if (exitSkipped()) return;
+        next.endArray();
+    }
+
+    @Override
+    public void stringValue(String value) {
+        if (scalarSkipped()) return;
+        next.stringValue(value);
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        if (scalarSkipped()) return;
+        next.numberValue(value);
+    }
+
+    @Override
+    public void booleanValue(boolean value) {
+        if (scalarSkipped()) return;
+        next.booleanValue(value);
+    }
+
+    @Override
+    public void nullValue() {
+        if (scalarSkipped()) return;
+        next.nullValue();
+    }
+
+    // ---------- SKIPPING ----------
+    private boolean enterSkipped() {
+        if (skipDepth > 0) {
+            skipDepth++;
+            return true;
+        }
+        if (skipNext) {
+            skipNext = false;
+            skipDepth = 1;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean exitSkipped() {
+        if (skipDepth > 0) {
+            skipDepth--;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean scalarSkipped() {
+        if (skipDepth > 0) return true;
+        if (skipNext) {
+            skipNext = false;
+            return true;
+        }
+        return false;
+    }
+}
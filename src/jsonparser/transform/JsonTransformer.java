@@ -0,0 +1,93 @@
+package jsonparser.transform;
+
+import jsonparser.lexer.Lexer;
+import jsonparser.parser.*;
+import jsonparser.writer.JsonWriter;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+// Re-emits JSON without building a tree: the Parser streams events from the Lexer through the
+// configured stages into a JsonWriter. Memory stays constant in the size of the document (the
+// reader buffer, the writer buffer and one stack slot per open container), so it suits
+// minifying, pretty-printing and scrubbing inputs of any size. Malformed input fails with the
+// Parser's usual errors; output written before the error has already reached the sink.
+//
+//   new JsonTransformer().pretty(true).dropFields("password").redactKeys("token").transform(in, out);
+public class JsonTransformer {
+    private final List<UnaryOperator<JsonHandler>> stages = new ArrayList<>();
+    private boolean pretty;
+    private String indent;
+    private int maxDepth = Integer.MAX_VALUE;
+
+    // Pretty-printed output; compact (minified) otherwise.
+    public JsonTransformer pretty(boolean pretty) {
+        this.pretty = pretty;
+        return this;
+    }
+
+    public JsonTransformer indent(String indent) {
+        this.indent = indent;
+        return this;
+    }
+
+    // See Parser.setMaxDepth.
+    public JsonTransformer maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public JsonTransformer dropFields(String... keys) {
+        return stage(next -> new DropFields(next, Arrays.asList(keys)));
+    }
+
+    public JsonTransformer redactKeys(String... keys) {
+        return stage(next -> new RedactKeys(next, Arrays.asList(keys)));
+    }
+
+    public JsonTransformer normalizeNumbers() {
+        return stage(NormalizeNumbers::new);
+    }
+
+    // Adds a stage: given the handler downstream of it, returns the handler that feeds it.
+    // Stages see the events in the order they were added.
+    public JsonTransformer stage(UnaryOperator<JsonHandler> stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    public String transform(String json) {
+        StringWriter out = new StringWriter();
+        run(new Lexer(json), json, new JsonWriter(out));
+        return out.toString();
+    }
+
+    // The caller stays responsible for closing both streams.
+    public void transform(Reader in, Writer out) {
+        run(new Lexer(in).setKeepLineHistory(false), null, new JsonWriter(out));
+    }
+
+    // UTF-8 in, UTF-8 out.
+    public void transform(InputStream in, OutputStream out) {
+        run(new Lexer(in).setKeepLineHistory(false), null, new JsonWriter(out));
+    }
+
+    private void run(Lexer lexer, String originalInput, JsonWriter writer) {
+        writer.setPretty(pretty);
+        if (indent != null) writer.setIndent(indent);
+
+        JsonHandler handler = writer;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            handler = stages.get(i).apply(handler);
+        }
+
+        Parser parser = new Parser(lexer, originalInput);
+        parser.setMaxDepth(maxDepth);
+        try {
+            parser.parse(handler);
+        } finally {
+            writer.flush();
+        }
+    }
+}
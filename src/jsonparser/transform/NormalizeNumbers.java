@@ -0,0 +1,43 @@
+package jsonparser.transform;
+
+import jsonparser.parser.JsonHandler;
+import jsonparser.util.JsonNumber;
+
+import java.math.BigDecimal;
+
+// Rewrites every number in one canonical spelling with the same value: integral values without
+// a fraction or exponent (1.0 and 1e2 become 1 and 100), others without trailing zeros (1.50
+// becomes 1.5). Values that would need more than MAX_PLAIN_DIGITS digits keep an exponent.
+public class NormalizeNumbers extends JsonFilter {
+    public static final int MAX_PLAIN_DIGITS = 21;
+
+    public NormalizeNumbers(JsonHandler next) {
+        super(next);
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        super.numberValue(normalize(value));
+    }
+
+    private static Number normalize(Number value) {
+        if (!(value instanceof JsonNumber) || ((JsonNumber) value).isLong()) {
+            return value;
+        }
+        BigDecimal n;
+        try {
+            n = ((JsonNumber) value).asBigDecimal().stripTrailingZeros();
+        } catch (ArithmeticException e) {
+            return value;  // beyond BigDecimal's range: kept as written
+        }
+        if (n.signum() == 0) {
+            return JsonNumber.of(0);
+        }
+        long scale = n.scale();
+        if (scale <= 0 && n.precision() - scale <= 18) {
+            return JsonNumber.of(n.longValueExact());
+        }
+        long digits = scale <= 0 ? n.precision() - scale : Math.max(n.precision(), scale + 1);
+        return JsonNumber.parse(digits <= MAX_PLAIN_DIGITS ? n.toPlainString() : n.toString());
+    }
+}
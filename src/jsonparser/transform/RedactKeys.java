@@ -0,0 +1,34 @@
+package jsonparser.transform;
+
+import jsonparser.parser.JsonHandler;
+
+import java.util.*;
+
+// Keeps the members with the given keys, at any depth, but replaces each value (a container
+// included) with a fixed string.
+public class RedactKeys extends JsonFilter {
+    public static final String DEFAULT_MASK = "***";
+
+    private final Set<String> keys;
+    private final String mask;
+
+    public RedactKeys(JsonHandler next, Collection<String> keys) {
+        this(next, keys, DEFAULT_MASK);
+    }
+
+    public RedactKeys(JsonHandler next, Collection<String> keys, String mask) {
+        super(next);
+        this.keys = new HashSet<>(keys);
+        this.mask = mask;
+    }
+
+    @Override
+    public void key(String key) {
+        boolean redact = !isSkipping() && keys.contains(key);
+        super.key(key);
+        if (redact) {
+            next.stringValue(mask);
+            skipValue();
+        }
+    }
+}
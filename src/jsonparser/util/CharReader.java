@@ -1,33 +1,280 @@
 package jsonparser.util;
 
-// Reads characters one-by-one and updates the Position.
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Reads characters one-by-one and tracks the offset; line/column are derived on demand.
+// Input is pulled through a fixed-size buffer that is refilled in place, so a Reader or
+// InputStream can be lexed without loading the whole document into a String first.
+// A mark() pins the chars of the current token across refills so they can be sliced out
+// in one copy; the buffer only grows if a single token is longer than it.
 public class CharReader {
-    private final String input;
-    private int index = 0;
-    private final Position position = new Position();
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private String input;         // in-memory source (null when reading from a stream)
+    private final Reader source;   // streamed source (null for in-memory input)
+    private char[] buffer;
+    private int inputIndex = 0;   // next char of 'input' to copy into the buffer
+    private int inputEnd;         // end of the part of 'input' being read
+    private long bufferStart = 0; // offset of buffer[0] in the whole input
+    private int pos = 0;
+    private int limit = 0;
+    private boolean exhausted = false;
+    private long markOffset = -1;
+    private LineIndex lines;
+    private boolean keepLineHistory = true;
+    private long maxLength = Long.MAX_VALUE;
+    private boolean truncated = false;
 
     public CharReader(String input) {
+        this(input, 0, input.length(), 1);
+    }
+
+    // Reads input[from, to) only; offsets still count from the start of input, and the line
+    // starting at 'from' is numbered firstLine.
+    public CharReader(String input, int from, int to, int firstLine) {
+        this.source = null;
+        this.buffer = new char[Math.max(1, Math.min(to - from, DEFAULT_BUFFER_SIZE))];
+        reset(input, from, to, firstLine);
+    }
+
+    public CharReader(Reader source, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.input = null;
+        this.source = source;
+        this.buffer = new char[bufferSize];
+        this.lines = new LineIndex(this);
+    }
+
+    public CharReader(Reader source) {
+        this(source, DEFAULT_BUFFER_SIZE);
+    }
+
+    // Decodes the stream as UTF-8.
+    public CharReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    // Starts over on another in-memory range (see the range constructor), keeping the buffer.
+    public void reset(String input, int from, int to, int firstLine) {
+        if (source != null) {
+            throw new IllegalStateException("Only an in-memory reader can be reset");
+        }
+        if (buffer.length < Math.min(to - from, DEFAULT_BUFFER_SIZE)) {
+            buffer = new char[Math.min(to - from, DEFAULT_BUFFER_SIZE)];
+        }
         this.input = input;
+        this.inputIndex = from;
+        this.inputEnd = to;
+        this.bufferStart = from;
+        this.pos = 0;
+        this.limit = 0;
+        this.exhausted = false;
+        this.truncated = false;
+        this.markOffset = -1;
+        this.lines = new LineIndex(input, from, firstLine);
     }
 
     public boolean hasNext() {
-        return index < input.length();
+        return pos < limit || fill();
     }
 
     public char peek() {
-        return hasNext() ? input.charAt(index) : '\0';
+        return hasNext() ? buffer[pos] : '\0';
     }
 
     public char advance() {
         char c = peek();
         if (hasNext()) {
-            index++;
-            position.advance(c);
+            pos++;
         }
         return c;
     }
 
+    // Skips ahead to the next '"' or '\\' and returns it without consuming it.
+    // Scans the buffer directly instead of going through peek()/advance() per char.
+    public char skipToQuoteOrBackslash() {
+        while (hasNext()) {
+            for (int i = pos; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '"' || c == '\\') {
+                    pos = i;
+                    return c;
+                }
+            }
+            pos = limit;
+        }
+        return '\0';
+    }
+
+    // Skips a run of ASCII digits, scanning the buffer directly.
+    public void skipDigits() {
+        while (hasNext()) {
+            for (int i = pos; i < limit; i++) {
+                char c = buffer[i];
+                if (c < '0' || c > '9') {
+                    pos = i;
+                    return;
+                }
+            }
+            pos = limit;
+        }
+    }
+
+    // Skips spaces, tabs and line breaks, scanning the buffer directly.
+    public void skipWhitespace() {
+        while (hasNext()) {
+            for (int i = pos; i < limit; i++) {
+                char c = buffer[i];
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    pos = i;
+                    return;
+                }
+            }
+            pos = limit;
+        }
+    }
+
+    // Skips ahead to the next quote, bracket or brace and returns it without consuming it.
+    public char skipToQuoteOrBracket() {
+        while (hasNext()) {
+            for (int i = pos; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '"' || c == '[' || c == ']' || c == '{' || c == '}') {
+                    pos = i;
+                    return c;
+                }
+            }
+            pos = limit;
+        }
+        return '\0';
+    }
+
+    // Line/column of the current offset (computed, not tracked).
     public Position getPosition() {
-        return position;
+        return lines.positionOf(getOffset());
+    }
+
+    // Number of chars consumed so far.
+    public long getOffset() {
+        return bufferStart + pos;
+    }
+
+    // Pins the current offset; chars from here on stay available to sliceFromMark().
+    public void mark() {
+        markOffset = getOffset();
+    }
+
+    public void unmark() {
+        markOffset = -1;
+    }
+
+    // Text between the mark and the current offset.
+    public String sliceFromMark() {
+        return sliceFromMark(getOffset());
+    }
+
+    // Text between the mark and 'end' (an offset at or before the current one).
+    public String sliceFromMark(long end) {
+        if (input != null) {
+            return input.substring((int) markOffset, (int) end);
+        }
+        int from = (int) (markOffset - bufferStart);
+        return new String(buffer, from, (int) (end - markOffset));
+    }
+
+    // Like sliceFromMark(end), but resolved through the symbol table without allocating on a hit.
+    public String internFromMark(long end, SymbolTable symbols) {
+        if (input != null) {
+            return symbols.intern(input, (int) markOffset, (int) end);
+        }
+        int from = (int) (markOffset - bufferStart);
+        return symbols.intern(buffer, from, from + (int) (end - markOffset));
+    }
+
+    public LineIndex getLineIndex() {
+        return lines;
+    }
+
+    // When off, a streamed reader forgets the lines before the current buffer (or before the
+    // mark) on every refill, so only positions from there on can still be looked up.
+    // In-memory input keeps no line history in the first place.
+    public void setKeepLineHistory(boolean keepLineHistory) {
+        this.keepLineHistory = keepLineHistory;
+    }
+
+    // Reads no further than one char past maxLength, so longer input is never buffered beyond
+    // its limit: the reader then ends there and isTruncated() tells that apart from the real end.
+    public void setMaxLength(long maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    // True once reading stopped at the length limit (the input is longer than maxLength).
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    // Feeds the line index up to the given offset from the current buffer.
+    void indexTo(long offset) {
+        lines.index(buffer, (int) Math.min(limit, offset - bufferStart), bufferStart);
+    }
+
+    // Refills the buffer from the start. Returns false once the input is exhausted.
+    private boolean fill() {
+        if (exhausted) return false;
+        if (bufferStart + limit > maxLength) {
+            truncated = true;
+            exhausted = true;
+            return false;
+        }
+
+        int keep = 0;
+        int n;
+        if (input != null) {
+            // marked text is sliced straight from the input, nothing to keep
+            n = capped(Math.min(buffer.length, inputEnd - inputIndex));
+            input.getChars(inputIndex, inputIndex + n, buffer, 0);
+            inputIndex += n;
+        } else {
+            lines.index(buffer, limit, bufferStart); // record newlines before they are overwritten
+            if (!keepLineHistory) {
+                lines.forgetBefore(markOffset >= 0 ? markOffset : bufferStart + Math.max(0, limit - 1));
+            }
+
+            if (markOffset >= 0) {
+                int from = (int) (markOffset - bufferStart);
+                keep = limit - from;
+                if (keep == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                System.arraycopy(buffer, from, buffer, 0, keep);
+            }
+            try {
+                do {
+                    n = source.read(buffer, keep, capped(buffer.length - keep));
+                } while (n == 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        bufferStart += limit - keep;
+        if (n <= 0) {
+            exhausted = true;
+            pos = limit = keep;
+            return false;
+        }
+        pos = keep;
+        limit = keep + n;
+        return true;
+    }
+
+    // At most n chars, and none beyond the first one past maxLength.
+    private int capped(int n) {
+        long room = maxLength - (bufferStart + limit);  // at least 0 here
+        return room < n ? (int) room + 1 : n;
     }
 }
@@ -0,0 +1,173 @@
+package jsonparser.util;
+
+import java.math.BigInteger;
+
+// Shortest decimal text for a double: the fewest significant digits that read back as the same
+// double, and of those the one closest to it. This is Raffaello Giulietti's Schubfach algorithm,
+// the one behind Double.toString since JDK 19; older JDKs can print more digits than needed
+// (1e23 as 9.999999999999999E22, 2.82879384806159E17 as 2.82879384806159008E17).
+//
+// The text is laid out as Double.toString does it: plain between 1e-3 and 1e7 ("100.0",
+// "0.001"), computerized scientific notation otherwise ("1.0E23", "4.9E-324").
+public class DoubleFormat {
+
+    private static final int P = 53;              // significand bits, hidden bit included
+    private static final int Q_MIN = -1074;       // exponent of the smallest subnormal
+    private static final long C_MIN = 1L << (P - 1);
+    private static final long C_TINY = 3;         // subnormal significands below this get one more digit
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+
+    // G[2(k - K_MIN)] and G[2(k - K_MIN) + 1] hold the upper and lower 63 bits of
+    // floor(10^-k * 2^-r) + 1, where r is chosen so that the value lies in [2^125, 2^126).
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+        BigInteger mask = BigInteger.valueOf(MASK_63);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            int r = flog2pow10(-k) - 125;
+            BigInteger num = BigInteger.ONE;
+            BigInteger den = BigInteger.ONE;
+            if (k < 0) num = BigInteger.TEN.pow(-k);
+            else den = BigInteger.TEN.pow(k);
+            if (r < 0) num = num.shiftLeft(-r);
+            else den = den.shiftLeft(r);
+            BigInteger g = num.divide(den).add(BigInteger.ONE);
+            G[2 * (k - K_MIN)] = g.shiftRight(63).longValueExact();
+            G[2 * (k - K_MIN) + 1] = g.and(mask).longValue();
+        }
+    }
+
+    private DoubleFormat() {
+    }
+
+    public static String toString(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            return Double.toString(v);
+        }
+        long bits = Double.doubleToRawLongBits(v);
+        String sign = bits < 0 ? "-" : "";
+        long t = bits & (C_MIN - 1);
+        int bq = (int) (bits >>> (P - 1)) & 0x7ff;
+        if (bq != 0) {
+            // normal: v = c * 2^q
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return sign + layout(f, 0);  // an integer below 2^53: its digits are the shortest
+                }
+            }
+            return sign + toDecimal(-mq, c, 0);
+        }
+        if (t != 0) {
+            // subnormal
+            return sign + (t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1) : toDecimal(Q_MIN, t, 0));
+        }
+        return sign + "0.0";
+    }
+
+    // v = c * 2^q. Finds the decimal in v's rounding interval with the fewest digits by scaling
+    // the interval bounds with the 126-bit approximation of 10^-k.
+    private static String toDecimal(int q, long c, int dk) {
+        int out = (int) c & 1;  // bounds are included when c is even (round half to even)
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // the gap below a power of two is half the gap above it
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G[2 * (k - K_MIN)];
+        long g0 = G[2 * (k - K_MIN) + 1];
+
+        long vb = roundOdd(g1, g0, cb << h);
+        long vbl = roundOdd(g1, g0, cbl << h);
+        long vbr = roundOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit fewer: s and s + 1 rounded down/up to a multiple of 10
+            long sp10 = s / 10 * 10;
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return layout(upin ? sp10 : tp10, k);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return layout(uin ? s : t, k + dk);
+        }
+        // both in the interval: take the closer one, the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return layout(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk);
+    }
+
+    // (g * cp) >> 128, with the bits shifted out folded into the lowest bit (round to odd).
+    private static long roundOdd(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    // f * 10^e as Double.toString lays it out.
+    private static String layout(long f, int e) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        String digits = Long.toString(f);
+        int n = digits.length();
+        int point = e + n;  // value = 0.digits * 10^point
+        StringBuilder sb = new StringBuilder(n + 8);
+        if (0 < point && point <= 7) {
+            if (n <= point) {
+                sb.append(digits);
+                for (int i = n; i < point; i++) sb.append('0');
+                sb.append(".0");
+            } else {
+                sb.append(digits, 0, point).append('.').append(digits, point, n);
+            }
+        } else if (-3 < point && point <= 0) {
+            sb.append("0.");
+            for (int i = point; i < 0; i++) sb.append('0');
+            sb.append(digits);
+        } else {
+            sb.append(digits.charAt(0)).append('.');
+            if (n > 1) sb.append(digits, 1, n);
+            else sb.append('0');
+            sb.append('E').append(point - 1);
+        }
+        return sb.toString();
+    }
+
+    // floor(e * log10(2))
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    // floor(e * log10(2) + log10(3/4))
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    // floor(e * log2(10))
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
@@ -0,0 +1,250 @@
+package jsonparser.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// A JSON number that is converted lazily.
+// Plain integers that fit in a long are stored as a long and never touch a String.
+// Everything else keeps its source text plus the leading significand and decimal exponent,
+// so common doubles are converted without parsing the text and nothing loses precision.
+public final class JsonNumber extends Number {
+    private static final long serialVersionUID = 1L;
+
+    // What addExponentDigit returns once an exponent has more digits than it keeps.
+    public static final int SATURATED_EXPONENT = 1_000_000_000;
+
+    private static final long MAX_FAST_SIGNIFICAND = 1L << 53;
+    private static final long MAX_DOUBLE_DIGITS_SIGNIFICAND = 999_999_999_999_999L; // 15 digits
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final long significand;  // signed; the whole value when text == null
+    private final int exponent;      // value = significand * 10^exponent (when exact)
+    private final boolean exact;     // false once digits were dropped from the significand
+    private final String text;       // source text, null for plain integers
+
+    private JsonNumber(long significand, int exponent, boolean exact, String text) {
+        this.significand = significand;
+        this.exponent = exponent;
+        this.exact = exact;
+        this.text = text;
+    }
+
+    public static JsonNumber of(long value) {
+        return new JsonNumber(value, 0, true, null);
+    }
+
+    // A number whose text has already been split into significand and exponent by a scanner.
+    public static JsonNumber of(String text, long significand, int exponent, boolean exact) {
+        return new JsonNumber(significand, exponent, exact, text);
+    }
+
+    // A finite double, spelled with the shortest digits that read back as the same double.
+    public static JsonNumber of(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON numbers must be finite: " + value);
+        }
+        return parse(DoubleFormat.toString(value));
+    }
+
+    public static JsonNumber parse(String text) {
+        return parse(text, 0, text.length());
+    }
+
+    // Parses s[from, to), which must hold a number the lexer already validated.
+    public static JsonNumber parse(CharSequence s, int from, int to) {
+        int i = from;
+        boolean negative = s.charAt(i) == '-';
+        if (negative) i++;
+
+        long significand = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean integer = true;
+
+        for (; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                integer = false;
+                continue;
+            }
+            if (c == 'e' || c == 'E') {
+                integer = false;
+                int e = parseExponent(s, i + 1, to);
+                if (e == SATURATED_EXPONENT || e == -SATURATED_EXPONENT) {
+                    exact = false;  // digits were dropped: only the text still holds the value
+                }
+                exponent += e;
+                break;
+            }
+            int d = c - '0';
+            if (significand == 0 && d == 0) {
+                if (!integer) exponent--;
+            } else if (canAppendDigit(significand, d)) {
+                significand = significand * 10 + d;
+                if (!integer) exponent--;
+            } else {
+                exact = false;
+                if (integer) exponent++;
+            }
+        }
+
+        if (negative) significand = -significand;
+        if (integer && exact && !(negative && significand == 0)) {
+            return of(significand);
+        }
+        return of(s.subSequence(from, to).toString(), significand, exponent, exact);
+    }
+
+    private static int parseExponent(CharSequence s, int i, int to) {
+        boolean negative = false;
+        char sign = s.charAt(i);
+        if (sign == '+' || sign == '-') {
+            negative = sign == '-';
+            i++;
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            value = addExponentDigit(value, s.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // True if significand * 10 + digit still fits in a long.
+    public static boolean canAppendDigit(long significand, int digit) {
+        return significand < Long.MAX_VALUE / 10 || (significand == Long.MAX_VALUE / 10 && digit <= 7);
+    }
+
+    // Accumulates an exponent digit. Far outside any representable range it saturates at
+    // SATURATED_EXPONENT; a number whose exponent saturated is no longer exact.
+    public static int addExponentDigit(int value, int digit) {
+        return value < 100_000_000 ? value * 10 + digit : SATURATED_EXPONENT;
+    }
+
+    // True when the value is stored as a plain long.
+    public boolean isLong() {
+        return text == null;
+    }
+
+    // True when asDouble() loses nothing: the number can be stored as a double and
+    // recovered with the same value (integers up to 2^53, decimals up to 15 significant digits).
+    public boolean isDoubleExact() {
+        if (text == null) {
+            return Math.abs(significand) <= MAX_FAST_SIGNIFICAND;
+        }
+        return exact && Math.abs(significand) <= MAX_DOUBLE_DIGITS_SIGNIFICAND
+                && exponent >= -300 && exponent <= 290;
+    }
+
+    // True when the number survives a round trip through a double spelling and all: an integer
+    // that isDoubleExact(), or text that is already the shortest form of its double (1.5 or
+    // 1.0E23, but not 1.50, 15e-1 or 1e23, which would come back as 1.5 and 1.0E23).
+    public boolean isShortestDouble() {
+        if (!isDoubleExact()) return false;
+        if (text == null) return true;
+        if (text.indexOf('.') < 0 || text.indexOf('e') >= 0) return false;  // never the shortest form
+        return text.equals(DoubleFormat.toString(asDouble()));
+    }
+
+    // The exact value as a long; throws ArithmeticException if it has a fraction or does not fit.
+    public long asLong() {
+        return text == null ? significand : asBigDecimal().longValueExact();
+    }
+
+    // Nearest double. Small significands with small exponents are converted exactly without
+    // looking at the text; the rest falls back to Double.parseDouble.
+    public double asDouble() {
+        if (text == null) {
+            return significand;
+        }
+        if (exact && Math.abs(significand) <= MAX_FAST_SIGNIFICAND && significand != 0) {
+            if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+                return significand * POWERS_OF_TEN[exponent];
+            }
+            if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                return significand / POWERS_OF_TEN[-exponent];
+            }
+        }
+        return Double.parseDouble(text);
+    }
+
+    // The exact value; throws ArithmeticException if its exponent is beyond BigDecimal's range
+    // (valid JSON such as 1e9999999999).
+    public BigDecimal asBigDecimal() {
+        if (text == null) {
+            return BigDecimal.valueOf(significand);
+        }
+        if (exact) {
+            return BigDecimal.valueOf(significand, -exponent);
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new ArithmeticException("Exponent out of range: " + text);
+        }
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public long longValue() {
+        return text == null ? significand : asBigDecimal().longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) asDouble();
+    }
+
+    @Override
+    public double doubleValue() {
+        return asDouble();
+    }
+
+    // Numeric equality: 1.0, 1 and 1e0 are equal. Numbers beyond BigDecimal's range are only
+    // equal to the same spelling.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JsonNumber)) return false;
+        JsonNumber other = (JsonNumber) o;
+        if (text == null && other.text == null) return significand == other.significand;
+        try {
+            return asBigDecimal().compareTo(other.asBigDecimal()) == 0;
+        } catch (ArithmeticException e) {
+            return toString().equals(other.toString());
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        if (text == null) return Long.hashCode(significand);
+        try {
+            return hashOf(asBigDecimal());
+        } catch (ArithmeticException e) {
+            return text.hashCode();
+        }
+    }
+
+    // Hash of a numeric value, consistent with equals: integral values that fit in a long hash
+    // like that long (so 1e18 hashes like 1000000000000000000), the rest like their stripped form.
+    public static int hashOf(BigDecimal value) {
+        BigDecimal n = value.stripTrailingZeros();
+        if (n.scale() <= 0 && n.precision() - n.scale() <= 19) {
+            BigInteger integral = n.toBigInteger();
+            if (integral.bitLength() < 64) return Long.hashCode(integral.longValue());
+        }
+        return n.hashCode();
+    }
+
+    // The number as written in the source.
+    @Override
+    public String toString() {
+        return text != null ? text : Long.toString(significand);
+    }
+}
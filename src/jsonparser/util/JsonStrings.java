@@ -0,0 +1,56 @@
+package jsonparser.util;
+
+// Helpers for JSON string literals.
+public class JsonStrings {
+
+    private JsonStrings() {
+    }
+
+    // Decodes the escape sequences in s[from, to). The text must already have been validated by the lexer.
+    // Each \\uXXXX escape yields one UTF-16 unit, so escaped surrogate pairs combine into one code point.
+    public static String unescape(CharSequence s, int from, int to) {
+        int backslash = -1;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '\\') {
+                backslash = i;
+                break;
+            }
+        }
+        if (backslash < 0) {
+            return s.subSequence(from, to).toString();
+        }
+
+        StringBuilder sb = new StringBuilder(to - from);
+        sb.append(s, from, backslash);
+        for (int i = backslash; i < to; i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = s.charAt(++i);
+            switch (escaped) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    sb.append((char) (hexValue(s.charAt(i + 1)) << 12 | hexValue(s.charAt(i + 2)) << 8
+                            | hexValue(s.charAt(i + 3)) << 4 | hexValue(s.charAt(i + 4))));
+                    i += 4;
+                    break;
+                default: sb.append(escaped); // '"', '\\' and '/'
+            }
+        }
+        return sb.toString();
+    }
+
+    // Value of an ASCII hex digit, or -1.
+    public static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,117 @@
+package jsonparser.util;
+
+import java.util.Arrays;
+
+// Maps char offsets to line/column numbers, so the hot path only has to track an offset.
+// Line starts are recorded lazily: an in-memory document is scanned only as far as the
+// largest offset asked for; a streamed document is indexed by its CharReader before
+// each buffer refill (and on demand for the current buffer). A streamed index can be told
+// to keep only the lines from the current buffer on, so its size does not grow with the input.
+public class LineIndex {
+    private final CharSequence input;  // null when fed by a CharReader
+    private final CharReader reader;
+    private long[] lineStarts = new long[16];
+    private int lineCount = 1;          // lineStarts[0] is where indexing starts
+    private long indexedTo = 0;         // every newline before this offset is recorded
+    private int firstLine = 1;          // number of the line at lineStarts[0]
+
+    public LineIndex(CharSequence input) {
+        this.input = input;
+        this.reader = null;
+    }
+
+    // Indexes input from 'start' on, numbering the line that begins there firstLine
+    // (e.g. one record of a larger file).
+    public LineIndex(CharSequence input, long start, int firstLine) {
+        this(input);
+        this.lineStarts[0] = start;
+        this.indexedTo = start;
+        this.firstLine = firstLine;
+    }
+
+    LineIndex(CharReader reader) {
+        this.input = null;
+        this.reader = reader;
+    }
+
+    // 1-based line of the given offset
+    public int lineOf(long offset) {
+        return firstLine + lineIndex(offset);
+    }
+
+    // 1-based column of the given offset
+    public int columnOf(long offset) {
+        return (int) (offset - lineStarts[lineIndex(offset)] + 1);
+    }
+
+    public Position positionOf(long offset) {
+        int index = lineIndex(offset);
+        return new Position(firstLine + index, (int) (offset - lineStarts[index] + 1));
+    }
+
+    // Offset where the given 1-based line starts, or -1 if the document has fewer lines.
+    // Only available for in-memory documents.
+    public long lineStart(int line) {
+        if (input == null) {
+            throw new IllegalStateException("Line lookup needs an in-memory document");
+        }
+        int index = line - firstLine;
+        while (lineCount <= index && indexedTo < input.length()) {
+            scanInput(indexedTo + 1);
+        }
+        return index >= 0 && index < lineCount ? lineStarts[index] : -1;
+    }
+
+    // Records the newlines in buf[.., to) not seen yet; buf[0] sits at offset base.
+    void index(char[] buf, int to, long base) {
+        for (int i = (int) (indexedTo - base); i < to; i++) {
+            if (buf[i] == '\n') addLine(base + i + 1);
+        }
+        indexedTo = Math.max(indexedTo, base + to);
+    }
+
+    // Drops the starts of the lines that end before the line holding the offset; positions
+    // before that line can no longer be looked up.
+    void forgetBefore(long offset) {
+        int i = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        int line = i >= 0 ? i : -i - 2;
+        if (line <= 0) return;
+        System.arraycopy(lineStarts, line, lineStarts, 0, lineCount - line);
+        lineCount -= line;
+        firstLine += line;
+    }
+
+    // Index into lineStarts of the line holding the offset.
+    private int lineIndex(long offset) {
+        ensureIndexed(offset);
+        int i = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        if (i == -1) {
+            throw new IllegalStateException("Offset " + offset + " is before the indexed lines");
+        }
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private void ensureIndexed(long offset) {
+        if (offset <= indexedTo) return;
+        if (input != null) {
+            scanInput(offset);
+        } else {
+            reader.indexTo(offset);
+        }
+    }
+
+    private void scanInput(long offset) {
+        int end = (int) Math.min(offset, input.length());
+        for (int i = (int) indexedTo; i < end; i++) {
+            if (input.charAt(i) == '\n') addLine(i + 1);
+        }
+        indexedTo = Math.max(indexedTo, end);
+    }
+
+    private void addLine(long start) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = start;
+    }
+}
@@ -10,6 +10,11 @@ public class Position {
         this.column = 1;
     }
 
+    public Position(int line, int column) {
+        this.line = line;
+        this.column = column;
+    }
+
     public void advance(char c){
         if (c == '\n'){
             line++;
@@ -0,0 +1,118 @@
+package jsonparser.util;
+
+// Bounded table of canonical strings (typically object keys), looked up by their chars
+// so a repeated key costs no allocation. Every cached String has its hash code computed
+// once up front, which HashMap lookups then reuse.
+// Not thread-safe: use one table per parser or per thread.
+public class SymbolTable {
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    public static final int MAX_SYMBOL_LENGTH = 64; // longer strings are not cached
+
+    private final String[] symbols;
+    private final int[] hashes;
+    private final int mask;
+    private final int maxSize;
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public SymbolTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SymbolTable(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Symbol table size must be positive");
+        }
+        int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1; // load factor <= 0.5
+        this.symbols = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    public String intern(char[] buf, int from, int to) {
+        if (to - from > MAX_SYMBOL_LENGTH) {
+            misses++;
+            return new String(buf, from, to - from);
+        }
+
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + buf[i];
+        }
+
+        int slot = h & mask;
+        for (String s; (s = symbols[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == h && equals(s, buf, from, to)) {
+                hits++;
+                return s;
+            }
+        }
+        return insert(slot, h, new String(buf, from, to - from));
+    }
+
+    public String intern(CharSequence text, int from, int to) {
+        if (to - from > MAX_SYMBOL_LENGTH) {
+            misses++;
+            return text.subSequence(from, to).toString();
+        }
+
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+
+        int slot = h & mask;
+        for (String s; (s = symbols[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == h && equals(s, text, from, to)) {
+                hits++;
+                return s;
+            }
+        }
+        return insert(slot, h, text.subSequence(from, to).toString());
+    }
+
+    public String intern(String s) {
+        return intern(s, 0, s.length());
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private String insert(int slot, int h, String s) {
+        misses++;
+        if (size < maxSize) {
+            s.hashCode(); // String caches it; equals h
+            symbols[slot] = s;
+            hashes[slot] = h;
+            size++;
+        }
+        return s;
+    }
+
+    private static boolean equals(String s, char[] buf, int from, int to) {
+        if (s.length() != to - from) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != buf[from + i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean equals(String s, CharSequence text, int from, int to) {
+        if (s.length() != to - from) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != text.charAt(from + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,569 @@
+package jsonparser.writer;
+
+import jsonparser.parser.*;
+import jsonparser.util.DoubleFormat;
+import jsonparser.util.JsonNumber;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Writes JSON text as UTF-8 into a Writer, an OutputStream or a ByteBuffer.
+// Output is assembled in one reusable byte buffer and handed to the sink when the buffer fills
+// up or on flush(). Strings are copied byte for byte until a char that needs escaping or
+// encoding shows up; numbers keep their source text, and doubles are written with the shortest
+// digits that read back as the same double (DoubleFormat: 1e23 comes out as 1.0E23 on any JDK).
+//
+// JsonWriter is a JsonHandler, so events can be streamed straight from the Parser; write(value)
+// emits the events of a whole tree. Consecutive root values are separated by a newline.
+//
+//   JsonWriter out = new JsonWriter(stream).setPretty(true);
+//   out.write(value);
+//   out.flush();
+public class JsonWriter implements JsonHandler, Flushable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    // ESCAPES[c] for ASCII c: 0 = copied as is, 'u' = \\u00XX, anything else = backslash + that char.
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) ESCAPES[c] = 'u';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    private OutputStream stream;
+    private Writer writer;
+    private ByteBuffer target;
+
+    private final byte[] buf;
+    private int count;
+    private char[] chars;  // decoding buffer for a Writer sink
+
+    private boolean pretty;
+    private byte[] indent = {' ', ' '};
+
+    private byte[] stack = new byte[16];  // OBJECT / ARRAY per open container
+    private boolean[] nonEmpty = new boolean[16];
+    private int depth;
+    private boolean afterKey;
+    private boolean rootWritten;
+
+    public JsonWriter(OutputStream out) {
+        this(DEFAULT_BUFFER_SIZE);
+        this.stream = out;
+    }
+
+    // Chars are decoded back from the UTF-8 buffer, so a Writer sees exactly what a stream would.
+    public JsonWriter(Writer out) {
+        this(DEFAULT_BUFFER_SIZE);
+        this.writer = out;
+    }
+
+    // Fills the buffer from its position; a BufferOverflowException means the output did not fit.
+    public JsonWriter(ByteBuffer out) {
+        this(DEFAULT_BUFFER_SIZE);
+        this.target = out;
+    }
+
+    private JsonWriter(int bufferSize) {
+        this.buf = new byte[bufferSize];
+    }
+
+    // Compact JSON of the value.
+    public static String toJson(JsonValue value) {
+        return toJson(value, false);
+    }
+
+    public static String toJson(JsonValue value, boolean pretty) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter w = new JsonWriter(out).setPretty(pretty);
+        w.write(value);
+        w.flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Line breaks and indentation between members and elements, and a space after each colon.
+    public JsonWriter setPretty(boolean pretty) {
+        this.pretty = pretty;
+        return this;
+    }
+
+    // Indentation per level in pretty mode (two spaces by default).
+    public JsonWriter setIndent(String indent) {
+        for (int i = 0; i < indent.length(); i++) {
+            char c = indent.charAt(i);
+            if (c != ' ' && c != '\t') {
+                throw new IllegalArgumentException("Indent must be spaces or tabs");
+            }
+        }
+        this.indent = indent.getBytes(StandardCharsets.US_ASCII);
+        return this;
+    }
+
+    // Points the writer at a new sink, keeping its buffer and settings. Pending output is flushed first.
+    public void reset(OutputStream out) {
+        flush();
+        clearSinks();
+        this.stream = out;
+    }
+
+    public void reset(Writer out) {
+        flush();
+        clearSinks();
+        this.writer = out;
+    }
+
+    public void reset(ByteBuffer out) {
+        flush();
+        clearSinks();
+        this.target = out;
+    }
+
+    private void clearSinks() {
+        stream = null;
+        writer = null;
+        target = null;
+        depth = 0;
+        afterKey = false;
+        rootWritten = false;
+    }
+
+    // ---------- TREES ----------
+    // Iterative, like the Parser: each open container is a frame on an explicit stack (a member
+    // iterator for objects, the array and its next index for arrays), so any tree the Parser
+    // builds can be written back, however deep.
+    public void write(JsonValue value) {
+        Object[] frames = new Object[16];
+        int[] next = new int[16];
+        int top = 0;
+
+        while (true) {
+            if (value instanceof JsonObject || value instanceof JsonArray) {
+                if (top == frames.length) {
+                    frames = Arrays.copyOf(frames, top * 2);
+                    next = Arrays.copyOf(next, top * 2);
+                }
+                if (value instanceof JsonObject) {
+                    startObject();
+                    frames[top] = ((JsonObject) value).getMap().entrySet().iterator();
+                } else {
+                    startArray();
+                    frames[top] = value;
+                    next[top] = 0;
+                }
+                top++;
+            } else {
+                writeScalar(value);
+            }
+
+            // move to the next member or element, closing the containers that are done
+            boolean found = false;
+            while (top > 0 && !found) {
+                Object frame = frames[top - 1];
+                if (frame instanceof JsonArray) {
+                    JsonArray array = (JsonArray) frame;
+                    if (next[top - 1] < array.size()) {
+                        value = array.get(next[top - 1]++);
+                        found = true;
+                    } else {
+                        endArray();
+                        frames[--top] = null;
+                    }
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Iterator<Map.Entry<String, JsonValue>> members = (Iterator<Map.Entry<String, JsonValue>>) frame;
+                    if (members.hasNext()) {
+                        Map.Entry<String, JsonValue> member = members.next();
+                        key(member.getKey());
+                        value = member.getValue();
+                        found = true;
+                    } else {
+                        endObject();
+                        frames[--top] = null;
+                    }
+                }
+            }
+            if (!found) return;
+        }
+    }
+
+    private void writeScalar(JsonValue value) {
+        if (value instanceof JsonPrimitive) {
+            Object v = ((JsonPrimitive) value).get();
+            if (v == null) {
+                nullValue();
+            } else if (v instanceof String) {
+                stringValue((String) v);
+            } else if (v instanceof Number) {
+                numberValue((Number) v);
+            } else if (v instanceof Boolean) {
+                booleanValue((Boolean) v);
+            } else {
+                throw new IllegalArgumentException("Not a JSON value: " + v.getClass().getName());
+            }
+        } else if (value == null) {
+            nullValue();
+        } else {
+            throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+        }
+    }
+
+    // ---------- EVENTS ----------
+    @Override
+    public void startObject() {
+        beforeValue();
+        open(OBJECT);
+        writeByte('{');
+    }
+
+    @Override
+    public void key(String key) {
+        if (depth == 0 || stack[depth - 1] != OBJECT || afterKey) {
+            throw new IllegalStateException("A key is only allowed between the members of an object");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Object keys must not be null");
+        }
+        separate();
+        writeString(key);
+        writeByte(':');
+        if (pretty) writeByte(' ');
+        afterKey = true;
+    }
+
+    @Override
+    public void endObject() {
+        close(OBJECT);
+        writeByte('}');
+    }
+
+    @Override
+    public void startArray() {
+        beforeValue();
+        open(ARRAY);
+        writeByte('[');
+    }
+
+    @Override
+    public void endArray() {
+        close(ARRAY);
+        writeByte(']');
+    }
+
+    @Override
+    public void stringValue(String value) {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        beforeValue();
+        writeString(value);
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        // checked before anything is written, so a rejected number leaves the writer as it was
+        String text = null;
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new IllegalArgumentException("JSON numbers must be finite: " + value);
+            }
+        } else if (!(value instanceof JsonNumber || value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte || value instanceof BigDecimal
+                || value instanceof BigInteger)) {
+            // other Number types: accept only text that reads back as a JSON number
+            text = value.toString();
+            try {
+                new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a JSON number: " + text);
+            }
+        }
+
+        beforeValue();
+        if (value instanceof JsonNumber) {
+            JsonNumber n = (JsonNumber) value;
+            if (n.isLong()) writeLong(n.asLong());
+            else writeAscii(n.toString());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeLong(value.longValue());
+        } else if (value instanceof Double) {
+            writeAscii(DoubleFormat.toString(value.doubleValue()));
+        } else if (text == null) {
+            writeAscii(value.toString());  // Float, BigDecimal, BigInteger
+        } else {
+            writeAscii(text);
+        }
+    }
+
+    // Primitive overloads, so callers holding a long or double do not have to box it.
+    public void numberValue(long value) {
+        beforeValue();
+        writeLong(value);
+    }
+
+    public void numberValue(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON numbers must be finite: " + value);
+        }
+        beforeValue();
+        writeAscii(DoubleFormat.toString(value));
+    }
+
+    @Override
+    public void booleanValue(boolean value) {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    @Override
+    public void nullValue() {
+        beforeValue();
+        writeBytes(NULL);
+    }
+
+    // Number of objects and arrays currently open.
+    public int getDepth() {
+        return depth;
+    }
+
+    // ---------- STRUCTURE ----------
+    private void beforeValue() {
+        if (afterKey) {
+            afterKey = false;
+            return;
+        }
+        if (depth == 0) {
+            if (rootWritten) writeByte('\n');
+            rootWritten = true;
+            return;
+        }
+        if (stack[depth - 1] == OBJECT) {
+            throw new IllegalStateException("Object members need a key before their value");
+        }
+        separate();
+    }
+
+    // Comma (and in pretty mode the line break and indentation) before a member or element.
+    private void separate() {
+        if (nonEmpty[depth - 1]) writeByte(',');
+        nonEmpty[depth - 1] = true;
+        if (pretty) newline(depth);
+    }
+
+    private void open(byte type) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        }
+        stack[depth] = type;
+        nonEmpty[depth] = false;
+        depth++;
+    }
+
+    private void close(byte type) {
+        if (depth == 0 || stack[depth - 1] != type || afterKey) {
+            throw new IllegalStateException(type == OBJECT ? "No object to end here" : "No array to end here");
+        }
+        depth--;
+        if (pretty && nonEmpty[depth]) newline(depth);
+    }
+
+    private void newline(int level) {
+        writeByte('\n');
+        for (int i = 0; i < level; i++) {
+            writeBytes(indent);
+        }
+    }
+
+    // ---------- ENCODING ----------
+    // Runs of ASCII chars that need no escape go straight into the buffer; everything else is
+    // escaped or encoded one char (or surrogate pair) at a time. Lone surrogates are written as
+    // \\uXXXX escapes, since UTF-8 cannot carry them.
+    private void writeString(String s) {
+        writeByte('"');
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            int room = buf.length - count;
+            if (room <= 12) {
+                drain();
+                room = buf.length - count;
+            }
+            // plain run, bounded so that it always fits
+            int end = Math.min(n, i + room - 12);
+            int p = count;
+            while (i < end) {
+                char c = s.charAt(i);
+                if (c >= 0x80 || ESCAPES[c] != 0) break;
+                buf[p++] = (byte) c;
+                i++;
+            }
+            count = p;
+            if (i == end) continue;
+
+            char c = s.charAt(i++);
+            if (c < 0x80) {
+                byte e = ESCAPES[c];
+                buf[count++] = '\\';
+                if (e == 'u') {
+                    unicodeEscape(c);
+                } else {
+                    buf[count++] = e;
+                }
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[count++] = '\\';
+                unicodeEscape(c);
+            } else {
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    // The 'uXXXX' part of an escape; the caller has written the backslash.
+    private void unicodeEscape(char c) {
+        buf[count++] = 'u';
+        buf[count++] = HEX[(c >> 12) & 0xF];
+        buf[count++] = HEX[(c >> 8) & 0xF];
+        buf[count++] = HEX[(c >> 4) & 0xF];
+        buf[count++] = HEX[c & 0xF];
+    }
+
+    // Digits straight into the buffer, without an intermediate String.
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+        if (buf.length - count < 20) drain();
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        int p = count + digits;
+        count = p;
+        do {
+            buf[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void writeAscii(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            if (count == buf.length) drain();
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) {
+        if (count == buf.length) drain();
+        buf[count++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        for (byte b : bytes) {
+            writeByte(b);
+        }
+    }
+
+    // ---------- SINKS ----------
+    // Sends the buffered output to the sink and flushes it.
+    @Override
+    public void flush() {
+        drain();
+        try {
+            if (stream != null) stream.flush();
+            if (writer != null) writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Hands the buffer to the sink. The buffer only ever ends on a whole UTF-8 sequence.
+    private void drain() {
+        if (count == 0) return;
+        try {
+            if (stream != null) {
+                stream.write(buf, 0, count);
+            } else if (writer != null) {
+                writer.write(chars(), 0, decode());
+            } else if (target != null) {
+                target.put(buf, 0, count);
+            } else {
+                throw new IllegalStateException("Writer has no output");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count = 0;
+    }
+
+    private char[] chars() {
+        if (chars == null) chars = new char[buf.length];
+        return chars;
+    }
+
+    // Decodes the buffered UTF-8 (written by this class, so well formed) into chars.
+    private int decode() {
+        int n = 0;
+        int i = 0;
+        while (i < count) {
+            int b = buf[i] & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+                i++;
+            } else if (b < 0xE0) {
+                chars[n++] = (char) ((b & 0x1F) << 6 | (buf[i + 1] & 0x3F));
+                i += 2;
+            } else if (b < 0xF0) {
+                chars[n++] = (char) ((b & 0x0F) << 12 | (buf[i + 1] & 0x3F) << 6 | (buf[i + 2] & 0x3F));
+                i += 3;
+            } else {
+                int cp = (b & 0x07) << 18 | (buf[i + 1] & 0x3F) << 12 | (buf[i + 2] & 0x3F) << 6 | (buf[i + 3] & 0x3F);
+                chars[n++] = Character.highSurrogate(cp);
+                chars[n++] = Character.lowSurrogate(cp);
+                i += 4;
+            }
+        }
+        return n;
+    }
+}